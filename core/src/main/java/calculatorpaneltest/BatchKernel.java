@@ -0,0 +1,91 @@
+package calculatorpaneltest;
+
+// Element-wise operations used by CompiledExpression.evaluateBatch(), applied to n consecutive
+// values of the operand arrays (from their offsets) and written to dst from index 0.
+//
+// This class is the scalar implementation: plain loops, which the JIT can unroll and auto-vectorize.
+// When the jdk.incubator.vector module is available and VectorBatchKernel has been compiled,
+// INSTANCE is a VectorBatchKernel instead, which runs the arithmetic with explicit SIMD vectors.
+// Transcendental functions always use java.lang.Math, so batch results are bit-for-bit identical
+// to CompiledExpression.evaluate().
+class BatchKernel {
+
+    static final BatchKernel INSTANCE = load();
+
+    private static BatchKernel load()
+    {
+        try {
+            if (ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent())
+                return (BatchKernel) Class.forName("calculatorpaneltest.VectorBatchKernel").getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException | LinkageError e) {
+            // VectorBatchKernel was not compiled: use the scalar loops
+        }
+        return new BatchKernel();
+    }
+
+    // Name of the implementation, for benchmark reports
+    String name()
+    {
+        return "scalar";
+    }
+
+    // dst[i] = a[aOff + i] (op) b[bOff + i] for a binary operator code
+    void binary(int op, double[] a, int aOff, double[] b, int bOff, double[] dst, int n)
+    {
+        switch (op) {
+            case CalculatorPanelEval.ADD -> { for (int i = 0; i < n; i++) dst[i] = a[aOff + i] + b[bOff + i]; }
+            case CalculatorPanelEval.SUB -> { for (int i = 0; i < n; i++) dst[i] = a[aOff + i] - b[bOff + i]; }
+            case CalculatorPanelEval.MUL -> { for (int i = 0; i < n; i++) dst[i] = a[aOff + i] * b[bOff + i]; }
+            case CalculatorPanelEval.DIV -> { for (int i = 0; i < n; i++) dst[i] = a[aOff + i] / b[bOff + i]; }
+            case CalculatorPanelEval.POW -> { for (int i = 0; i < n; i++) dst[i] = Math.pow(a[aOff + i], b[bOff + i]); }
+            default -> throw new IllegalArgumentException("Not a binary operator: " + op);
+        }
+    }
+
+    // dst[i] = a[aOff + i] (op) b for a binary operator code
+    void binary(int op, double[] a, int aOff, double b, double[] dst, int n)
+    {
+        switch (op) {
+            case CalculatorPanelEval.ADD -> { for (int i = 0; i < n; i++) dst[i] = a[aOff + i] + b; }
+            case CalculatorPanelEval.SUB -> { for (int i = 0; i < n; i++) dst[i] = a[aOff + i] - b; }
+            case CalculatorPanelEval.MUL -> { for (int i = 0; i < n; i++) dst[i] = a[aOff + i] * b; }
+            case CalculatorPanelEval.DIV -> { for (int i = 0; i < n; i++) dst[i] = a[aOff + i] / b; }
+            case CalculatorPanelEval.POW -> { for (int i = 0; i < n; i++) dst[i] = Math.pow(a[aOff + i], b); }
+            default -> throw new IllegalArgumentException("Not a binary operator: " + op);
+        }
+    }
+
+    // dst[i] = op(a[aOff + i]) for a function code or NEG
+    void unary(int op, double[] a, int aOff, double[] dst, int n)
+    {
+        switch (op) {
+            case CalculatorPanelEval.SIN -> { for (int i = 0; i < n; i++) dst[i] = Math.sin(a[aOff + i]); }
+            case CalculatorPanelEval.COS -> { for (int i = 0; i < n; i++) dst[i] = Math.cos(a[aOff + i]); }
+            case CalculatorPanelEval.TAN -> { for (int i = 0; i < n; i++) dst[i] = Math.tan(a[aOff + i]); }
+            case CalculatorPanelEval.COT -> { for (int i = 0; i < n; i++) dst[i] = 1.0 / Math.tan(a[aOff + i]); }
+            case CalculatorPanelEval.NEG -> { for (int i = 0; i < n; i++) dst[i] = -a[aOff + i]; }
+            case CalculatorPanelEval.LN, CalculatorPanelEval.LOG -> {
+                for (int i = 0; i < n; i++) dst[i] = Math.log(a[aOff + i]);
+            }
+            default -> throw new IllegalArgumentException("Not a function: " + op);
+        }
+    }
+
+    // Flag rows whose value is 0 (divisor of '/', argument of cot)
+    void flagZero(double[] a, int aOff, boolean[] error, int n)
+    {
+        for (int i = 0; i < n; i++) error[i] |= a[aOff + i] == 0.0;
+    }
+
+    // Flag rows whose value is <= 0 (argument of ln and log)
+    void flagNonPositive(double[] a, int aOff, boolean[] error, int n)
+    {
+        for (int i = 0; i < n; i++) error[i] |= a[aOff + i] <= 0.0;
+    }
+
+    // Flag rows whose value overflowed to an infinity
+    void flagInfinite(double[] a, int aOff, boolean[] error, int n)
+    {
+        for (int i = 0; i < n; i++) error[i] |= Double.isInfinite(a[aOff + i]);
+    }
+}
@@ -0,0 +1,101 @@
+package calculatorpaneltest;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+// Dumps the records of a BinaryResultLog as text, one line per record:
+//   <seed> <index> oracle=<value|error> calc=<value|EvalError@position> [MISMATCH] [expression]
+//
+// Usage: java calculatorpaneltest.BinaryLogReader <file> [--mismatches] [--calc-errors] [--regenerate]
+//                                                       [--limit <n>]
+//   --mismatches    only records where the evaluators disagree
+//   --calc-errors   only records where the CalculatorPanel evaluator reported an error
+//   --regenerate    regenerate expressions that were not logged from their seed and index
+//   --limit <n>     stop after n matching records
+public class BinaryLogReader {
+
+    private static final String USAGE = "Usage: java calculatorpaneltest.BinaryLogReader <file> [--mismatches] "
+            + "[--calc-errors] [--regenerate] [--limit <n>]";
+
+    public static void main(String[] args) throws IOException
+    {
+        if (args.length == 0) {
+            System.out.println(USAGE);
+            return;
+        }
+
+        boolean mismatchesOnly = false, calcErrorsOnly = false, regenerate = false;
+        long limit = Long.MAX_VALUE;
+        try {
+            for (int i = 1; i < args.length; i++) {
+                switch (args[i]) {
+                    case "--mismatches" -> mismatchesOnly = true;
+                    case "--calc-errors" -> calcErrorsOnly = true;
+                    case "--regenerate" -> regenerate = true;
+                    case "--limit" -> limit = RunOptions.positive(args, ++i);
+                    default -> throw new IllegalArgumentException("Unknown option: " + args[i]);
+                }
+            }
+        } catch (IllegalArgumentException e) {
+            System.out.println(e.getMessage());
+            System.out.println(USAGE);
+            return;
+        }
+
+        EvalError[] errors = EvalError.values();
+        TestWorker generator = regenerate ? new TestWorker(0, CaseLog.NONE) : null;
+        long matched = 0;
+
+        try (DataInputStream in = new DataInputStream(
+                new BufferedInputStream(new FileInputStream(args[0]), 1 << 16))) {
+            if (in.readInt() != BinaryResultLog.MAGIC)
+                throw new IOException(args[0] + " is not a binary result log");
+            int version = in.readInt();
+            if (version != BinaryResultLog.VERSION)
+                throw new IOException("Unsupported binary result log version " + version);
+            long seed = in.readLong();
+
+            while (matched < limit) {
+                long index;
+                try {
+                    index = in.readLong();
+                } catch (EOFException e) {
+                    break;
+                }
+                int flags = in.readByte();
+                double oracleValue = in.readDouble();
+                double calcValue = in.readDouble();
+                EvalError calcError = errors[in.readByte()];
+                int calcPosition = in.readInt();
+                String expression = null;
+                if ((flags & BinaryResultLog.HAS_EXPRESSION) != 0) {
+                    byte[] bytes = new byte[in.readInt()];
+                    in.readFully(bytes);
+                    expression = new String(bytes, StandardCharsets.UTF_8);
+                }
+
+                boolean mismatch = (flags & BinaryResultLog.MISMATCH) != 0;
+                if (mismatchesOnly && !mismatch) continue;
+                if (calcErrorsOnly && calcError == EvalError.NONE) continue;
+                matched++;
+
+                if (expression == null && generator != null)
+                    expression = generator.generateCase(seed, index);
+
+                StringBuilder line = new StringBuilder();
+                line.append(seed).append(' ').append(index);
+                line.append(" oracle=").append((flags & BinaryResultLog.ORACLE_ERROR) != 0 ? "error" : oracleValue);
+                line.append(" calc=");
+                if (calcError == EvalError.NONE) line.append(calcValue);
+                else line.append(calcError).append('@').append(calcPosition);
+                if (mismatch) line.append(" MISMATCH");
+                if (expression != null) line.append(' ').append(expression);
+                System.out.println(line);
+            }
+        }
+    }
+}
@@ -0,0 +1,183 @@
+package calculatorpaneltest;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+// Compact binary log of test case results, written through a FileChannel by a background thread.
+//
+// Each TestWorker writes through its own Appender, which encodes records into a large private
+// buffer; full buffers are queued to the writer thread, so generation threads never block on I/O
+// unless the disk falls more than QUEUED_BATCHES batches behind.
+//
+// File format (big endian):
+//   header:  int MAGIC, int VERSION, long seed (master seed of the run, shared by every record)
+//   record:  long index, byte flags, double oracleValue, double calcValue,
+//            byte calcError (EvalError ordinal), int calcErrorPosition,
+//            [int length, length bytes of UTF-8 expression]   if flags & HAS_EXPRESSION
+// Use BinaryLogReader to filter records and dump them as text.
+final class BinaryResultLog implements AutoCloseable {
+
+    static final int MAGIC = 0x43504C47;    // "CPLG"
+    static final int VERSION = 2;
+
+    // Record flags
+    static final int MISMATCH = 1;
+    static final int ORACLE_ERROR = 2;
+    static final int HAS_EXPRESSION = 4;
+
+    // Size of a record without its expression
+    static final int FIXED_RECORD_SIZE = 8 + 1 + 8 + 8 + 1 + 4;
+
+    static final int BATCH_SIZE = 1 << 20;
+    static final int QUEUED_BATCHES = 16;
+
+    // Queued by close() to stop the writer thread
+    private static final ByteBuffer END = ByteBuffer.allocate(0);
+
+    private final FileChannel channel;
+    private final BlockingQueue<ByteBuffer> queue = new ArrayBlockingQueue<>(QUEUED_BATCHES);
+    private final ConcurrentLinkedQueue<ByteBuffer> freeBatches = new ConcurrentLinkedQueue<>();
+    private final Thread writerThread;
+    private volatile IOException failure;
+
+    // Log of the run with the given master seed
+    BinaryResultLog(Path file, long seed) throws IOException
+    {
+        channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+        ByteBuffer header = ByteBuffer.allocate(16).putInt(MAGIC).putInt(VERSION).putLong(seed).flip();
+        while (header.hasRemaining()) channel.write(header);
+
+        writerThread = new Thread(this::writeBatches, "binary-result-log");
+        writerThread.setDaemon(true);
+        writerThread.start();
+    }
+
+    // New appender for one worker thread. With allExpressions, every record carries its expression;
+    // otherwise only mismatches do (other cases can be regenerated from their seed and index).
+    Appender newAppender(boolean allExpressions)
+    {
+        return new Appender(allExpressions);
+    }
+
+    // Wait for every queued batch to be written, then close the file.
+    // Appenders must be closed first so that their last batch is queued.
+    @Override
+    public void close() throws IOException
+    {
+        try {
+            queue.put(END);
+            writerThread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while closing the binary log", e);
+        } finally {
+            channel.close();
+        }
+        if (failure != null) throw failure;
+    }
+
+    // WRITER THREAD: WRITE QUEUED BATCHES TO THE FILE AND RECYCLE THEM
+    private void writeBatches()
+    {
+        try {
+            while (true) {
+                ByteBuffer batch = queue.take();
+                if (batch == END) return;
+                try {
+                    while (batch.hasRemaining()) channel.write(batch);
+                } catch (IOException e) {
+                    // Keep draining the queue so producers do not block; close() reports the failure
+                    if (failure == null) failure = e;
+                }
+                if (batch.capacity() == BATCH_SIZE) freeBatches.add(batch.clear());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private ByteBuffer newBatch()
+    {
+        ByteBuffer batch = freeBatches.poll();
+        return batch != null ? batch : ByteBuffer.allocateDirect(BATCH_SIZE);
+    }
+
+    private void submit(ByteBuffer batch)
+    {
+        try {
+            queue.put(batch.flip());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while queueing a binary log batch", e);
+        }
+    }
+
+    // Per-thread writer of records into the log
+    final class Appender implements CaseLog {
+
+        private final boolean allExpressions;
+        private ByteBuffer batch = newBatch();
+
+        private Appender(boolean allExpressions)
+        {
+            this.allExpressions = allExpressions;
+        }
+
+        @Override
+        public void write(long index, String expression, boolean oracleError, double oracleValue,
+                          EvalResult calcResult, boolean mismatch)
+        {
+            boolean withExpression = allExpressions || mismatch;
+            byte[] encoded = withExpression && !isAscii(expression)
+                    ? expression.getBytes(StandardCharsets.UTF_8) : null;
+            int length = !withExpression ? 0 : encoded != null ? encoded.length : expression.length();
+            ensureSpace(FIXED_RECORD_SIZE + (withExpression ? 4 + length : 0));
+
+            int flags = (mismatch ? MISMATCH : 0) | (oracleError ? ORACLE_ERROR : 0)
+                    | (withExpression ? HAS_EXPRESSION : 0);
+            batch.putLong(index).put((byte) flags)
+                    .putDouble(oracleValue).putDouble(calcResult.value())
+                    .put((byte) calcResult.error().ordinal()).putInt(calcResult.position());
+
+            if (withExpression) {
+                batch.putInt(length);
+                if (encoded != null) {
+                    batch.put(encoded);
+                } else {
+                    for (int i = 0; i < length; i++) batch.put((byte) expression.charAt(i));
+                }
+            }
+        }
+
+        // Queue the last batch of this appender
+        @Override
+        public void close()
+        {
+            if (batch != null && batch.position() > 0) submit(batch);
+            batch = null;
+        }
+
+        private void ensureSpace(int size)
+        {
+            if (batch.remaining() >= size) return;
+            if (batch.position() > 0) submit(batch);
+            // Records larger than a batch get a dedicated buffer, which is not recycled
+            batch = size <= BATCH_SIZE ? newBatch() : ByteBuffer.allocate(size);
+        }
+    }
+
+    private static boolean isAscii(String s)
+    {
+        for (int i = 0; i < s.length(); i++)
+            if (s.charAt(i) >= 0x80) return false;
+        return true;
+    }
+}
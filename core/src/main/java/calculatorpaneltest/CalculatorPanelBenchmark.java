@@ -0,0 +1,174 @@
+package calculatorpaneltest;
+
+import java.lang.management.ManagementFactory;
+import java.util.Random;
+
+// Micro-benchmark for the CalculatorPanel evaluator on long expressions, reporting the time and the
+// heap allocation per evaluation. Only the public CalculatorPanelEval API is used, so the same class
+// can be run against an older build of the evaluator to compare before/after numbers.
+//
+// Usage: java calculatorpaneltest.CalculatorPanelBenchmark [tokens per expression ...]
+//        java calculatorpaneltest.CalculatorPanelBenchmark batch
+//                                 (evaluateBatch() against a per-row evaluate() loop)
+public class CalculatorPanelBenchmark {
+
+    final static int[] DEFAULT_LENGTHS = {100, 1000, 10000};
+    final static long WARMUP_NANOS = 2_000_000_000L;
+    final static long MEASURE_NANOS = 3_000_000_000L;
+
+    // Keeps the JIT from discarding benchmarked results
+    static double sink;
+
+    // Formulas of two variables for the batch benchmark
+    final static String[] BATCH_FORMULAS = {
+            "x * y + ( x - 1 ) / ( y + 2 )",
+            "( 0 - 1 ) * x ^ 2 + 3 * x * y - y / 7",
+            "sin ( x ) * y + ln ( y + 3 )"};
+    final static int BATCH_ROWS = 1 << 16;
+
+    public static void main(String[] args)
+    {
+        if (args.length > 0 && args[0].equals("batch")) {
+            batchBenchmark();
+            return;
+        }
+
+        int[] lengths = DEFAULT_LENGTHS;
+        if (args.length > 0) {
+            lengths = new int[args.length];
+            for (int i = 0; i < args.length; i++) lengths[i] = Integer.parseInt(args[i]);
+        }
+
+        System.out.printf("%-10s %-10s %14s %14s%n", "shape", "tokens", "ns/op", "bytes/op");
+        for (int length : lengths) {
+            report("flat", length, flatExpression(length));
+            report("nested", length, nestedExpression(length));
+            report("power", length, powerChain(length));
+        }
+    }
+
+    // MEASURE EVALUATE(STRING) ON ONE EXPRESSION AND PRINT A RESULT LINE
+    private static void report(String shape, int length, String expr)
+    {
+        CalculatorPanelEval calcEval = new CalculatorPanelEval();
+        run(calcEval, expr, WARMUP_NANOS);
+
+        long allocatedBefore = allocatedBytes();
+        long start = System.nanoTime();
+        long ops = run(calcEval, expr, MEASURE_NANOS);
+        long elapsed = System.nanoTime() - start;
+        long allocated = allocatedBytes() - allocatedBefore;
+
+        System.out.printf("%-10s %-10d %14.1f %14.1f%n", shape, length,
+                (double) elapsed / ops, (double) allocated / ops);
+    }
+
+    private static long run(CalculatorPanelEval calcEval, String expr, long nanos)
+    {
+        long ops = 0;
+        long end = System.nanoTime() + nanos;
+        while (System.nanoTime() < end) {
+            for (int i = 0; i < 64; i++) {
+                try {
+                    sink += calcEval.evaluate(expr);
+                } catch (NumberFormatException e) {
+                    sink++;
+                }
+            }
+            ops += 64;
+        }
+        return ops;
+    }
+
+    // COMPARE EVALUATEBATCH() OVER COLUMNS AGAINST EVALUATE() CALLED FOR EACH ROW
+    private static void batchBenchmark()
+    {
+        Random r = new Random(1);
+        double[][] columns = new double[2][BATCH_ROWS];
+        for (int i = 0; i < BATCH_ROWS; i++) {
+            columns[0][i] = r.nextDouble() * 100 - 50;
+            columns[1][i] = r.nextDouble() * 100;
+        }
+        double[] out = new double[BATCH_ROWS];
+        double[] bindings = new double[2];
+
+        System.out.println("Batch kernel: " + BatchKernel.INSTANCE.name());
+        System.out.printf("%-45s %14s %14s %8s%n", "formula", "ns/row loop", "ns/row batch", "speedup");
+        for (String formula : BATCH_FORMULAS) {
+            CompiledExpression expr = CalculatorPanelEval.compile(formula, "x", "y");
+
+            double loop = timePerRow(() -> {
+                for (int i = 0; i < BATCH_ROWS; i++) {
+                    bindings[0] = columns[0][i];
+                    bindings[1] = columns[1][i];
+                    try {
+                        sink += expr.evaluate(bindings);
+                    } catch (NumberFormatException e) {
+                        sink++;
+                    }
+                }
+            });
+            double batch = timePerRow(() -> sink += expr.evaluateBatch(columns, out));
+
+            System.out.printf("%-45s %14.2f %14.2f %7.1fx%n", formula, loop, batch, loop / batch);
+        }
+    }
+
+    // Average time per row of a task processing BATCH_ROWS rows, after warming it up
+    private static double timePerRow(Runnable task)
+    {
+        long end = System.nanoTime() + WARMUP_NANOS;
+        while (System.nanoTime() < end) task.run();
+
+        long runs = 0;
+        long start = System.nanoTime();
+        end = start + MEASURE_NANOS;
+        while (System.nanoTime() < end) {
+            task.run();
+            runs++;
+        }
+        return (double) (System.nanoTime() - start) / (runs * BATCH_ROWS);
+    }
+
+    // Bytes allocated so far by the current thread
+    private static long allocatedBytes()
+    {
+        return ((com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean())
+                .getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+    // "n op n op n ..." with mixed precedence: the operator stack stays shallow
+    static String flatExpression(int tokens)
+    {
+        Random r = new Random(tokens);
+        String[] ops = {"+", "-", "*", "/"};
+        StringBuilder sb = new StringBuilder();
+        sb.append(r.nextInt(1000) + 1);
+        for (int i = 1; i + 1 < tokens; i += 2)
+            sb.append(' ').append(ops[r.nextInt(ops.length)]).append(' ').append(r.nextInt(1000) + 1);
+        return sb.toString();
+    }
+
+    // "( ( ( n + n ) * n ) - n ) ...": the operator stack grows with the nesting depth
+    static String nestedExpression(int tokens)
+    {
+        Random r = new Random(tokens);
+        String[] ops = {"+", "-", "*"};
+        int depth = Math.max(tokens / 4, 1);
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < depth; i++) sb.append("( ");
+        sb.append(r.nextInt(1000) + 1);
+        for (int i = 0; i < depth; i++)
+            sb.append(' ').append(ops[r.nextInt(ops.length)]).append(' ').append(r.nextInt(1000) + 1).append(" )");
+        return sb.toString();
+    }
+
+    // "n ^ n ^ n ...": right associative, so every operand stays on the operand stack until the end
+    static String powerChain(int tokens)
+    {
+        StringBuilder sb = new StringBuilder("1");
+        for (int i = 1; i + 1 < tokens; i += 2)
+            sb.append(" ^ 1");
+        return sb.toString();
+    }
+}
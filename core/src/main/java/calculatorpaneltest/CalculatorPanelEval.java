@@ -0,0 +1,304 @@
+package calculatorpaneltest;
+
+// Class to evaluate a mathematical expression using the CalculatorPanel evaluator functions,
+// which are based on Dijkstra's Shunting Yard Algorithm.
+// This class's methods are taken from the CalculatorPanel application's evaluation functionality.
+
+public class CalculatorPanelEval {
+
+    // Higher indices indicate higher precedence (precedence = index / 2)
+    final static private String[] OPS_PRECEDENCE = { "-", "+", "*", "/", "^", "^",
+            "sin", "cos", "tan" , "cot", "ln", "log"};
+
+    // Token and instruction codes: operators are identified by their index in OPS_PRECEDENCE,
+    // negative codes match the markers infixToRPN() keeps on its stack
+    final static int SUB = 0, ADD = 1, MUL = 2, DIV = 3, POW = 4,
+            SIN = 6, COS = 7, TAN = 8, COT = 9, LN = 10, LOG = 11;
+    final static int NUMBER = -1, OPEN_PAREN = -2, CLOSE_PAREN = -3, OPEN_BRACE = -4, CLOSE_BRACE = -5,
+            INVALID = -6, VARIABLE = -7;
+    // Negation: never read from an expression, only emitted by RpnOptimizer into compiled programs
+    final static int NEG = -8;
+
+    // Buffers and stacks reused by evaluate(), so that evaluating an expression produces no garbage
+    private final TokenBuffer tokens = new TokenBuffer();
+    private final TokenBuffer postfix = new TokenBuffer();
+    private final IntStack operatorStack = new IntStack();
+    private final DoubleStack operandStack = new DoubleStack();
+    private final EvalResult result = new EvalResult();
+
+    // Optional cache of results, with the key reused for its lookups (null without a cache)
+    private final EvaluationCache cache;
+    private final EvaluationCache.Key cacheKey;
+
+    // Per-phase timings of tryEvaluate(), recorded only when set (see PhaseMetrics)
+    PhaseMetrics metrics;
+
+    // Operand stack for callers without an evaluator instance (e.g. CompiledExpression.evaluate())
+    private static final ThreadLocal<DoubleStack> THREAD_OPERAND_STACK = ThreadLocal.withInitial(DoubleStack::new);
+
+    // Constructor
+    public CalculatorPanelEval()
+    {
+        this(null);
+    }
+
+    // Evaluator looking expressions up in a cache first, which may be shared with other evaluators
+    public CalculatorPanelEval(EvaluationCache cache)
+    {
+        this.cache = cache;
+        this.cacheKey = cache == null ? null : new EvaluationCache.Key();
+    }
+
+    // Evaluate using CalculatorPanel functionality.
+    // Errors are reported with a NumberFormatException; use tryEvaluate() to avoid exceptions.
+    public double evaluate(String currExpression)
+    {
+        if (!tryEvaluate(currExpression, result))
+            throw new NumberFormatException(result.message());
+        return result.value();
+    }
+
+    // Evaluate without throwing, storing the value or error into result.
+    // Returns true if the expression evaluated successfully.
+    public boolean tryEvaluate(String currExpression, EvalResult result)
+    {
+        long start = metrics != null ? System.nanoTime() : 0;
+        ExpressionTokenizer.tokenize(currExpression, tokens);
+        if (metrics != null) metrics.record(PhaseMetrics.Phase.TOKENIZE, start);
+        return tryEvaluate(tokens, result);
+    }
+
+    // Evaluate an expression already tokenized by ExpressionTokenizer (e.g. the tokens of a test case,
+    // shared with the oracle: see TokenizedOracle). infix is only read.
+    boolean tryEvaluate(TokenBuffer infix, EvalResult result)
+    {
+        if (cache != null && cacheKey.set(infix, operatorStack)) {
+            if (cache.get(cacheKey, result)) return !result.isError();
+            evaluateTokens(infix, result);
+            cache.put(cacheKey, result);
+            return !result.isError();
+        }
+        return evaluateTokens(infix, result);
+    }
+
+    private boolean evaluateTokens(TokenBuffer infix, EvalResult result)
+    {
+        if (metrics != null) return evaluateTokensTimed(infix, result);
+        int mismatch = infixToRPN(infix, postfix, operatorStack);
+        if (mismatch >= 0)
+            return result.fail(EvalError.MISMATCHED_PARENTHESIS, mismatch);
+        return evalRPN(postfix, operandStack, result);
+    }
+
+    private boolean evaluateTokensTimed(TokenBuffer infix, EvalResult result)
+    {
+        long start = System.nanoTime();
+        int mismatch = infixToRPN(infix, postfix, operatorStack);
+        start = metrics.record(PhaseMetrics.Phase.INFIX_TO_RPN, start);
+        if (mismatch >= 0)
+            return result.fail(EvalError.MISMATCHED_PARENTHESIS, mismatch);
+        boolean evaluated = evalRPN(postfix, operandStack, result);
+        metrics.record(PhaseMetrics.Phase.EVAL_RPN, start);
+        return evaluated;
+    }
+
+    public EvalResult tryEvaluate(String currExpression)
+    {
+        EvalResult evalResult = new EvalResult();
+        tryEvaluate(currExpression, evalResult);
+        return evalResult;
+    }
+
+    // Compile an infix expression once, so that it can be evaluated repeatedly without re-parsing.
+    // Tokens named after one of the variables are bound to values at evaluation time
+    // (see CompiledExpression.evaluate(double...) and evaluateBatch()).
+    public static CompiledExpression compile(String infix, String... variables)
+    {
+        for (String name : variables)
+            if (!ExpressionTokenizer.isValidVariableName(name))
+                throw new IllegalArgumentException("Invalid variable name: " + name);
+
+        TokenBuffer tokens = new TokenBuffer(Math.max(infix.length() / 2, 1));
+        ExpressionTokenizer.tokenize(infix, tokens, variables);
+
+        TokenBuffer program = new TokenBuffer(Math.max(tokens.size, 1));
+        int mismatch = infixToRPN(tokens, program, new IntStack());
+        if (mismatch >= 0)
+            return new CompiledExpression(null, mismatch, variables.length);
+        return new CompiledExpression(program.copy(), -1, variables.length);
+    }
+
+    // Evaluate a postfix token program on the calling thread's operand stack
+    static boolean evalRPN(TokenBuffer program, double[] bindings, EvalResult result)
+    {
+        return evalRPN(program, bindings, THREAD_OPERAND_STACK.get(), result);
+    }
+
+    static boolean evalRPN(TokenBuffer program, DoubleStack stack, EvalResult result)
+    {
+        return evalRPN(program, null, stack, result);
+    }
+
+    static boolean evalRPN(TokenBuffer program, double[] bindings, DoubleStack stack, EvalResult result)
+    {
+        // Function adapted from: https://rosettacode.org/wiki/Parsing/RPN_calculator_algorithm#Java_2
+        // Evaluate a postfix token program, using (and clearing) the given operand stack.
+        // VARIABLE tokens take their value from bindings (indexed by variable).
+        // The value or error is stored into result; returns true if the evaluation succeeded.
+
+        int[] code = program.code;
+        stack.clear();
+
+        for (int pc = 0; pc < program.size; pc++) {
+            switch (code[pc]) {
+
+                // Binary Operators
+                case MUL -> {
+                    if (stack.size() < 2) return result.fail(EvalError.MISSING_OPERAND, program.position[pc]);
+                    double secondOperand = stack.pop();
+                    stack.set(stack.peek() * secondOperand);
+                }
+                case DIV -> {
+                    if (stack.size() < 2) return result.fail(EvalError.MISSING_OPERAND, program.position[pc]);
+                    double secondOperand = stack.pop();
+                    if (secondOperand == 0.0) return result.fail(EvalError.DIVISION_BY_ZERO, program.position[pc]);
+                    stack.set(stack.peek() / secondOperand);
+                }
+                case SUB -> {
+                    if (stack.size() < 2) return result.fail(EvalError.MISSING_OPERAND, program.position[pc]);
+                    double secondOperand = stack.pop();
+                    stack.set(stack.peek() - secondOperand);
+                }
+                case ADD -> {
+                    if (stack.size() < 2) return result.fail(EvalError.MISSING_OPERAND, program.position[pc]);
+                    double secondOperand = stack.pop();
+                    stack.set(stack.peek() + secondOperand);
+                }
+                case POW -> {
+                    if (stack.size() < 2) return result.fail(EvalError.MISSING_OPERAND, program.position[pc]);
+                    double secondOperand = stack.pop();
+                    stack.set(Math.pow(stack.peek(), secondOperand));
+                }
+
+                // Unary Operators
+                case SIN -> {
+                    if (stack.isEmpty()) return result.fail(EvalError.MISSING_FUNCTION_ARGUMENT, program.position[pc]);
+                    stack.set(Math.sin(stack.peek()));
+                }
+                case COS -> {
+                    if (stack.isEmpty()) return result.fail(EvalError.MISSING_FUNCTION_ARGUMENT, program.position[pc]);
+                    stack.set(Math.cos(stack.peek()));
+                }
+                case TAN -> {
+                    if (stack.isEmpty()) return result.fail(EvalError.MISSING_FUNCTION_ARGUMENT, program.position[pc]);
+                    stack.set(Math.tan(stack.peek()));
+                }
+                case COT -> {
+                    if (stack.isEmpty()) return result.fail(EvalError.MISSING_FUNCTION_ARGUMENT, program.position[pc]);
+                    if (stack.peek() == 0.0) return result.fail(EvalError.COT_OF_ZERO, program.position[pc]);
+                    stack.set(1.0 / Math.tan(stack.peek()));
+                }
+                case LN -> {
+                    if (stack.isEmpty()) return result.fail(EvalError.MISSING_FUNCTION_ARGUMENT, program.position[pc]);
+                    if (stack.peek() <= 0.0) return result.fail(EvalError.LN_DOMAIN, program.position[pc]);
+                    stack.set(Math.log(stack.peek()));
+                }
+                case LOG -> {
+                    if (stack.isEmpty()) return result.fail(EvalError.MISSING_FUNCTION_ARGUMENT, program.position[pc]);
+                    if (stack.peek() <= 0.0) return result.fail(EvalError.LOG_DOMAIN, program.position[pc]);
+                    stack.set(Math.log(stack.peek()));
+                }
+
+                case NEG -> {
+                    if (stack.isEmpty()) return result.fail(EvalError.MISSING_OPERAND, program.position[pc]);
+                    stack.set(-stack.peek());
+                }
+
+                // Digits and variables
+                case NUMBER -> stack.push(program.value[pc]);
+                case VARIABLE -> stack.push(bindings[(int) program.value[pc]]);
+                default -> {
+                    return result.fail(EvalError.INVALID_TOKEN, program.position[pc]);
+                }
+            }
+        }
+        // An empty expression is reported as an invalid token
+        if (stack.isEmpty()) return result.fail(EvalError.INVALID_TOKEN, -1);
+        if (stack.size() > 1) return result.fail(EvalError.TOO_MANY_OPERANDS, -1);
+
+        double value = stack.pop();
+        // Check for double overflow
+        if (value == Double.POSITIVE_INFINITY || value == Double.NEGATIVE_INFINITY)
+            return result.fail(EvalError.OVERFLOW, -1);
+        result.succeed(value);
+        return true;
+    }
+
+    static String infixToRPN(String infix)
+    {
+        // Convert infix mathematical expression to Reverse Polish Notation (postfix)
+
+        TokenBuffer tokens = new TokenBuffer();
+        ExpressionTokenizer.tokenize(infix, tokens);
+        TokenBuffer postfixTokens = new TokenBuffer(Math.max(tokens.size, 1));
+        if (infixToRPN(tokens, postfixTokens, new IntStack()) >= 0)
+            return EvalError.MISMATCHED_PARENTHESIS.message();
+
+        StringBuilder postfix = new StringBuilder();
+        for (int i = 0; i < postfixTokens.size; i++) {
+            int code = postfixTokens.code[i];
+            postfix.append(code >= 0 ? OPS_PRECEDENCE[code] : postfixTokens.text(i)).append(' ');
+        }
+        return postfix.toString();
+    }
+
+    static int infixToRPN(TokenBuffer infix, TokenBuffer postfix, IntStack s)
+    {
+        // Function adapted from: https://rosettacode.org/wiki/Parsing/Shunting-yard_algorithm#Java
+        // Convert infix tokens to postfix tokens, using (and clearing) s as the operator stack.
+        // The stack holds token indices. Returns the position of a mismatched bracket, or -1.
+
+        postfix.clear(infix.source);
+        s.clear();
+
+        for (int i = 0; i < infix.size; i++) {
+            int idx = infix.code[i];
+
+            // Check if the current token is an operator
+            if (idx >= 0) {
+                // If current token's precedence is lower than the operator on top of the stack,
+                // pop the top of the stack and append to result ('^' is right associative)
+                while (!s.isEmpty()) {
+                    int prec2 = infix.code[s.peek()] / 2;
+                    int prec1 = idx / 2;
+                    if (prec2 > prec1 || (prec2 == prec1 && idx != POW)) {
+                        postfix.add(infix, s.pop());
+                    } else {
+                        break;
+                    }
+                }
+                s.push(i);
+            }
+            else if (idx == OPEN_PAREN || idx == OPEN_BRACE) {
+                s.push(i);
+            }
+            else if (idx == CLOSE_PAREN || idx == CLOSE_BRACE) {
+                // Until the matching bracket is on the stack, pop operators
+                while (!s.isEmpty() && infix.code[s.peek()] >= 0)
+                    postfix.add(infix, s.pop());
+                if (s.isEmpty() || infix.code[s.peek()] != idx + 1)
+                    return infix.position[i];
+                s.pop();
+            }
+            else {
+                postfix.add(infix, i);
+            }
+        }
+        while (!s.isEmpty()) {       // Empty out the stack
+            if (infix.code[s.peek()] < 0)
+                return infix.position[s.peek()];
+            postfix.add(infix, s.pop());
+        }
+        return -1;
+    }
+}
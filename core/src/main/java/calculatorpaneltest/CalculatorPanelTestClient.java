@@ -0,0 +1,585 @@
+package calculatorpaneltest;
+
+// Oracle evaluator: https://github.com/fathzer/javaluator
+// http://javaluator.fathzer.com/en/home/
+// (evaluations are performed by TestWorker)
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.UnsupportedEncodingException;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.IntFunction;
+
+// This is a test expression generator for the CalculatorPanel application, used to generate
+// randomized test expressions to be evaluated using the CalculatorPanel
+// evaluator and the Javaluator "oracle evaluator".
+//
+// The application reports on the number of expressions evaluated by both evaluators,
+// and the number of mathematically incorrect inputs caught by both evaluators.
+public class CalculatorPanelTestClient {
+
+    // This global constant indicates the range of integers that will be used to generate expressions
+    // [ (-DIGIT_RANGE / 2), (DIGIT_RANGE - DIGIT_RANGE / 2) ]
+    final static long DIGIT_RANGE = 100000000;
+
+    // These global
+    final static String[] OPEN_SYMBOLS = {"(", "{", "digit", "-u", "sin (", "cos (", "tan (" ,
+            "cot (", "ln (", "log ("};
+    final static String[] POST_DIGIT_SYMBOLS = {".", "-", "+", "*", "/", "^", ")", "}"};
+    final static String[] POST_UN_BIN_OPENP_SYMBOLS = {"(", "{", "digit", "-u", "sin (", "cos (",
+            "tan (", "cot (", "ln (", "log ("};
+    final static String[] POST_CLOSEP_SYMBOLS = {")", "}", "-", "+", "*", "/", "^"};
+
+    // Sorted in natural ordering to allow for Arrays.binarySearch()
+    final static String[] BINARY_OPERATORS = {"*", "+", "-", "/", "^"};
+    final static String[] UNARY_OPERATORS = {"-u", "cos (", "cot (", "ln (", "log (", "sin (", "tan ("};
+    final static String[] OPEN_PARENS = {"(", "{"};
+    final static String[] CLOSE_PARENS = {")", "}"};
+
+    // Index in the stats array of the first per-EvalError count of calculator outcomes
+    // (stats[CALC_OUTCOMES + EvalError.ordinal()])
+    final static int CALC_OUTCOMES = 5;
+    final static int STATS_LENGTH = CALC_OUTCOMES + EvalError.values().length;
+
+    // Number of test cases a worker thread claims at a time in parallel runs
+    final static int PARALLEL_CHUNK = 1024;
+
+    // Number of mismatching cases kept for --minimize
+    final static int MAX_MINIMIZED = 1000;
+
+    public static void main(String[] args)
+    {
+        RunOptions options;
+        try {
+            options = RunOptions.parse(args);
+        } catch (IllegalArgumentException e) {
+            System.out.println(e.getMessage());
+            System.out.println(RunOptions.USAGE);
+            return;
+        }
+
+        // Worker JVM of a --workers run: run the shards sent by the coordinator
+        if (options.shardWorkerPort > 0)
+        {
+            try {
+                ShardCoordinator.runWorker(options);
+            } catch (IOException e) {
+                System.out.println("Worker JVM lost its coordinator: " + e.getMessage());
+            }
+            return;
+        }
+
+        // Re-evaluate only the given cases of a previous run
+        if (options.replay != null)
+        {
+            replayCases(options.seed, options.replay);
+            return;
+        }
+
+        System.out.println("""
+                
+                Welcome to the CalculatorPanel Test Client.
+                
+                This client will evaluate the correctness of Calculator Panel's evaluation function,
+                as compared to the "oracle" evaluator Javaluator.
+                
+                Test cases correctly caught and test cases identified as mathematically incorrect
+                will be reported for both evaluation methods.
+                
+                Test cases used will be placed in the file "calc_test_cases.txt"
+                in the same directory as the application.
+                """);
+
+        // A resumed run continues the seed, case count and duration of its checkpoint
+        Checkpoint checkpoint = null;
+        if (options.resume)
+        {
+            try {
+                checkpoint = Checkpoint.load(Path.of(options.checkpoint), (long) (options.checkpointSeconds * 1e9));
+            } catch (IOException e) {
+                System.out.println("Reading the checkpoint failed: " + e.getMessage());
+                return;
+            }
+            options.seed = checkpoint.seed;
+        }
+
+        // Number of test cases: from --cases, unlimited with only --duration, or asked for
+        long testCases = checkpoint != null ? checkpoint.cases : options.cases;
+        long durationNanos = checkpoint != null ? checkpoint.remainingNanos() : options.durationNanos;
+        if (testCases == 0 && durationNanos > 0)
+        {
+            testCases = Long.MAX_VALUE;
+        }
+        else if (testCases == 0)
+        {
+            // Seek user input for number of test cases, checking for correct input
+            // (positive whole number)
+            System.out.println("How many test expressions should be generated and evaluated?\n");
+            testCases = inputTestCases();
+        }
+        System.out.println("Master seed: " + options.seed);
+        long firstCase = 0;
+        if (checkpoint != null)
+        {
+            firstCase = checkpoint.nextCase;
+            System.out.println("Resuming from " + options.checkpoint + " at case " + firstCase);
+        }
+        else if (options.checkpoint != null)
+        {
+            checkpoint = new Checkpoint(Path.of(options.checkpoint), (long) (options.checkpointSeconds * 1e9),
+                    options.seed, testCases, options.durationNanos);
+        }
+
+        // Generate test cases and compare results from both evaluators
+        // stats: [0]=oracleCorrect, [1]=oracleExceptions, [2]=calcPanelCorrect,
+        // [3]=calcPanelErrors, [4]=wrongEval, [CALC_OUTCOMES + i]=calcPanel outcomes per EvalError
+        long[] stats;
+        List<Long> mismatches = new ArrayList<>();
+
+        // Cases are logged to "calc_test_cases.txt" (one shard per thread in parallel runs),
+        // or to a binary log shared by all threads
+        BinaryResultLog binaryLog;
+        try {
+            binaryLog = options.binaryLog == null ? null : new BinaryResultLog(Path.of(options.binaryLog), options.seed);
+        } catch (IOException e) {
+            System.out.println("Creating the binary log failed: " + e);
+            return;
+        }
+        IntFunction<CaseLog> logs = w -> binaryLog != null
+                ? binaryLog.newAppender(options.logExpressions)
+                : new TextCaseLog(createOutputWriter(options.threads > 1
+                        ? "calc_test_cases-" + w + ".txt" : "calc_test_cases.txt"));
+
+        EvaluationCache cache = options.cacheBytes > 0 ? new EvaluationCache(options.cacheBytes) : null;
+        int mismatchesKept = options.minimize ? MAX_MINIMIZED : TestWorker.MAX_MISMATCHES_KEPT;
+        OracleCorpus oracleCorpus = null;
+        if (options.oracleCorpus != null)
+        {
+            try {
+                oracleCorpus = new OracleCorpus(Path.of(options.oracleCorpus));
+            } catch (IOException e) {
+                System.out.println("Opening the oracle corpus failed: " + e.getMessage());
+                return;
+            }
+            System.out.println(oracleCorpus.discarded
+                    ? "Oracle corpus written by another oracle version: starting a new one"
+                    : "Oracle corpus: " + oracleCorpus.size() + " expressions");
+        }
+
+        // Settings of every TestWorker of the run
+        OracleCorpus corpus = oracleCorpus;
+        Consumer<TestWorker> setup = worker -> {
+            worker.oracleCorpus = corpus;
+            worker.mismatchesKept = mismatchesKept;
+        };
+        PhaseMetrics metrics = options.metrics ? new PhaseMetrics() : null;
+
+        // Stop at the case count or the deadline, or gracefully on Ctrl-C
+        RunControl control = new RunControl(testCases, durationNanos, options.rate);
+        control.startAt(firstCase);
+        control.start(options.progressSeconds);
+        long runStart = System.nanoTime();
+
+        CoverageFuzzer fuzzer = null;
+        if (options.fuzz)
+        {
+            // Fuzzed cases depend on all the cases before them, so fuzzing runs on a single thread
+            CaseLog log = logs.apply(0);
+            fuzzer = new CoverageFuzzer(options.seed, log, true);
+            setup.accept(fuzzer.worker);
+            fuzzer.worker.setMetrics(metrics);
+            if (metrics != null) metrics.start();
+            fuzzer.run(control);
+            if (metrics != null) metrics.stop();
+            stats = fuzzer.stats();
+            log.close();
+        }
+        else if (options.workers > 0)
+        {
+            // Worker JVMs keep no case log: mismatches are listed for --replay
+            System.out.println("Running on " + options.workers + " worker JVMs, " + options.shardSize
+                    + " cases per shard (no case log)");
+            try {
+                stats = new ShardCoordinator(options, testCases, control).run(mismatches);
+            } catch (IOException e) {
+                System.out.println("Starting the worker JVMs failed: " + e.getMessage());
+                control.finished();
+                return;
+            }
+        }
+        else if (options.threads > 1)
+        {
+            stats = compareEvaluatorsParallel(control, options.threads, options.seed, logs, cache,
+                    setup, metrics, mismatches);
+        }
+        else
+        {
+            CaseLog log;
+            try {
+                // A checkpointed log is continued from the checkpoint's offset
+                log = checkpoint != null
+                        ? new TextCaseLog(Path.of("calc_test_cases.txt"), checkpoint.logOffset) : logs.apply(0);
+            } catch (IOException e) {
+                System.out.println("Opening the case log failed: " + e.getMessage());
+                control.finished();
+                return;
+            }
+            stats = compareEvaluators(control, log, options.seed, cache, setup, metrics, mismatches, checkpoint);
+
+            // Close file being written to
+            log.close();
+        }
+        control.stop();
+
+        // Each worker thread or shard keeps its own first mismatches: keep the run's first ones,
+        // so that the number regenerated and minimized does not grow with the number of workers
+        Collections.sort(mismatches);
+        if (mismatches.size() > mismatchesKept)
+            mismatches.subList(mismatchesKept, mismatches.size()).clear();
+        if (metrics != null) metrics.elapsedNanos = System.nanoTime() - runStart;
+        if (binaryLog != null)
+        {
+            try {
+                binaryLog.close();
+            } catch (IOException e) {
+                System.out.println("Writing the binary log failed: " + e.getMessage());
+            }
+        }
+
+        // Provide statistics for overall result of test (of the cases run, if the run was stopped early)
+        long casesRun = firstCase + control.completed();
+        if (control.interrupted())
+            System.out.println("\nRun interrupted after " + casesRun + " test cases.");
+        if (checkpoint != null)
+            System.out.println("\nCheckpoint saved to " + options.checkpoint + " (resume with --resume)");
+        reportStatistics(casesRun, stats);
+        if (fuzzer != null)
+        {
+            // Fuzzed cases cannot be replayed on their own: list the mismatching expressions instead
+            System.out.println("\n    Coverage-guided fuzzing:");
+            System.out.print(fuzzer.report());
+        }
+        else
+        {
+            reportMismatches(options.seed, mismatches);
+        }
+        if (cache != null)
+            System.out.println("\n    Result cache: " + cache);
+        if (metrics != null)
+            reportMetrics(metrics, options.metricsFile);
+        if (oracleCorpus != null)
+        {
+            System.out.println("\n    Oracle corpus: " + oracleCorpus);
+            try {
+                oracleCorpus.close();
+            } catch (IOException e) {
+                System.out.println("Writing the oracle corpus failed: " + e.getMessage());
+            }
+        }
+        if (options.minimize)
+            minimizeMismatches(options, fuzzer != null ? fuzzer.examples : regenerate(options.seed, mismatches));
+        control.finished();
+    }
+
+    // SEEK USER INPUT FOR NUMBER OF TEST CASES TO GENERATE
+    private static long inputTestCases()
+    {
+        Scanner sc = new Scanner(System.in);
+        boolean gotInput = false;
+        long testCases = 0;
+
+        // Check for correct input (positive whole number)
+        while (!gotInput) {
+            try {
+                testCases = sc.nextLong();
+                if (testCases < 0)
+                {
+                    System.out.println("Please enter a positive value:");
+                    continue;
+                }
+                gotInput = true;
+            } catch (Exception InputMismatchException) {
+                System.out.println("Please enter a positive whole number:");
+                sc.next();
+            }
+        }
+
+        return testCases;
+    }
+
+    // CONSTRUCT A MAP OF PREVIOUS INPUT TO NEXT ALLOWED INPUTS
+    static Map<String, String[]> createSymbolMap()
+    {
+        Map<String, String[]> inputCheck = new HashMap<>();
+        for (String s : BINARY_OPERATORS)   inputCheck.put(s, POST_UN_BIN_OPENP_SYMBOLS);
+        for (String s : UNARY_OPERATORS)    inputCheck.put(s, POST_UN_BIN_OPENP_SYMBOLS);
+        for (String s : OPEN_PARENS)        inputCheck.put(s, POST_UN_BIN_OPENP_SYMBOLS);
+        for (String s : CLOSE_PARENS)       inputCheck.put(s, POST_CLOSEP_SYMBOLS);
+        inputCheck.put("digit", POST_DIGIT_SYMBOLS);
+
+        return inputCheck;
+    }
+
+    private static PrintWriter createOutputWriter(String fileName)
+    {
+        PrintWriter writer = null;
+        try {
+            writer = new PrintWriter(fileName, StandardCharsets.UTF_8);
+        } catch (FileNotFoundException e) {
+            System.out.println("FileNotFoundException caught.");
+        } catch (IOException e) {
+            System.out.println("IOException caught.");
+        }
+
+        assert writer != null;
+        return writer;
+    }
+
+    // COMPARE THE EVALUATIONS OF THE ORACLE AND THE CALCULATOR ON THE TEST CASES
+    // control decides when to stop; metrics (null when disabled) receives the timings of the cases.
+    // With a checkpoint (null for none), the run starts from its state and saves it periodically and at the end.
+    private static long[] compareEvaluators(RunControl control, CaseLog log, long seed, EvaluationCache cache,
+                                            Consumer<TestWorker> setup, PhaseMetrics metrics,
+                                            List<Long> mismatches, Checkpoint checkpoint)
+    {
+        TestWorker worker = new TestWorker(seed, log, cache);
+        setup.accept(worker);
+        worker.setMetrics(metrics);
+
+        long i = 0;
+        if (checkpoint != null)
+        {
+            i = checkpoint.nextCase;
+            System.arraycopy(checkpoint.stats, 0, worker.stats, 0, STATS_LENGTH);
+            for (long index : checkpoint.mismatches)
+                worker.mismatches.add(index);
+        }
+
+        // Generate and compare test expressions
+        if (metrics != null) metrics.start();
+        for (; control.proceed(i); i++)
+        {
+            control.completed(worker.runCase(i));
+            if (checkpoint != null && checkpoint.due())
+                saveCheckpoint(checkpoint, i + 1, worker, log);
+        }
+        if (metrics != null) metrics.stop();
+        if (checkpoint != null)
+            saveCheckpoint(checkpoint, i, worker, log);
+
+        mismatches.addAll(worker.mismatches);
+        return worker.stats;
+    }
+
+    // SAVE THE STATE OF THE RUN BEFORE CASE nextCase, ONCE ITS LOG IS ON DISK
+    private static void saveCheckpoint(Checkpoint checkpoint, long nextCase, TestWorker worker, CaseLog log)
+    {
+        try {
+            checkpoint.save(nextCase, log.sync(), worker.stats, worker.mismatches);
+        } catch (IOException e) {
+            System.out.println("Writing the checkpoint failed: " + e.getMessage());
+        }
+    }
+
+    // COMPARE THE EVALUATIONS ON SEVERAL THREADS
+    // Every thread has its own TestWorker (evaluators, random generator, statistics and case log),
+    // claims test cases in chunks from a shared counter, and the statistics are summed at the end.
+    // Since every case is derived from (seed, index), the totals do not depend on the thread count.
+    // Workers record timings into their own PhaseMetrics, merged into metrics (if not null) at the end.
+    private static long[] compareEvaluatorsParallel(RunControl control, int threads, long seed,
+                                                    IntFunction<CaseLog> logs, EvaluationCache cache,
+                                                    Consumer<TestWorker> setup, PhaseMetrics metrics,
+                                                    List<Long> mismatches)
+    {
+        AtomicLong nextCase = new AtomicLong();
+        CaseLog[] workerLogs = new CaseLog[threads];
+        List<Future<?>> results = new ArrayList<>();
+        long[] stats = new long[STATS_LENGTH];
+
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        try {
+            TestWorker[] workers = new TestWorker[threads];
+            for (int w = 0; w < threads; w++)
+            {
+                workerLogs[w] = logs.apply(w);
+                TestWorker worker = workers[w] = new TestWorker(seed, workerLogs[w], cache);
+                setup.accept(worker);
+                PhaseMetrics workerMetrics = metrics != null ? new PhaseMetrics() : null;
+                worker.setMetrics(workerMetrics);
+                results.add(pool.submit(() -> {
+                    if (workerMetrics != null) workerMetrics.start();
+                    claim:
+                    while (true)
+                    {
+                        long start = nextCase.getAndAdd(PARALLEL_CHUNK);
+                        for (long i = start; i < start + PARALLEL_CHUNK; i++)
+                        {
+                            if (!control.proceed(i)) break claim;
+                            control.completed(worker.runCase(i));
+                        }
+                    }
+                    if (workerMetrics != null) workerMetrics.stop();
+                }));
+            }
+
+            for (Future<?> result : results)
+                result.get();
+            for (TestWorker worker : workers)
+            {
+                for (int i = 0; i < STATS_LENGTH; i++)
+                    stats[i] += worker.stats[i];
+                mismatches.addAll(worker.mismatches);
+                if (metrics != null) metrics.merge(worker.metrics());
+            }
+            Collections.sort(mismatches);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for worker threads", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Worker thread failed", e.getCause());
+        } finally {
+            pool.shutdownNow();
+            for (CaseLog log : workerLogs)
+                if (log != null) log.close();
+        }
+
+        return stats;
+    }
+
+    // CALCULATE AND DISPLAY STATISTICS OF THE EVALUATION ON THE CONSOLE
+    private static void reportStatistics(long testCases, long[] stats)
+    {
+        // stats: [0]=oracleCorrect, [1]=oracleExceptions, [2]=calcPanelCorrect,
+        // [3]=calcPanelErrors, [4]=wrongEval, [CALC_OUTCOMES + i]=calcPanel outcomes per EvalError
+        System.out.println("\nOut of " + testCases + " test cases, the oracle evaluated:");
+        System.out.println("    " + stats[0] + " expressions as mathematically correctly");
+        System.out.println("    " + stats[1] + " expressions as mathematically incorrect");
+
+        System.out.println("\nOut of " + testCases + " test cases, the calculator evaluated:");
+        System.out.println("    " + stats[2] + " expressions as mathematically correctly");
+        System.out.println("    " + stats[3] + " expressions as mathematically incorrect");
+        for (EvalError error : EvalError.values())
+        {
+            long count = stats[CALC_OUTCOMES + error.ordinal()];
+            if (error != EvalError.NONE && count > 0)
+                System.out.println("        " + count + " x " + error);
+        }
+
+        System.out.println("\nACCURACY STATISTICS:");
+
+        double badClassRatio = 100 - (100.0 * ((double)stats[0] / (double)stats[2]));
+        double badClassRatioRound = round(badClassRatio, 2);
+        System.out.println("    CalcPanel incorrectly classified " + badClassRatioRound +
+                "% (" + (stats[2] - stats[0]) +
+                " out of " + stats[2] +
+                ") test cases as syntactically correct\n    (when compared to Oracle's classification).");
+
+        double badEvalRatio = 100.0 * ((double)stats[4] / (double)stats[0]);
+        double badEvalRatioRound = round(badEvalRatio, 2);
+        System.out.println("\n    CalcPanel incorrectly evaluated " + badEvalRatioRound +
+                "% (" + stats[4] +
+                " out of " + stats[0] +
+                ") test cases.\n    (when compared to Oracle's evaluation).");
+
+    }
+
+    // DISPLAY THE TIME SPENT IN EACH PHASE, AND EXPORT IT TO file (JSON OR CSV BY EXTENSION) IF NOT NULL
+    private static void reportMetrics(PhaseMetrics metrics, String file)
+    {
+        System.out.println("\nPHASE METRICS:");
+        System.out.print(metrics.report());
+        if (file == null) return;
+
+        try {
+            Files.writeString(Path.of(file), file.endsWith(".csv") ? metrics.toCsv() : metrics.toJson(),
+                    StandardCharsets.UTF_8);
+            System.out.println("    Metrics written to " + file);
+        } catch (IOException e) {
+            System.out.println("Writing the metrics failed: " + e.getMessage());
+        }
+    }
+
+    // LIST THE FIRST MISMATCHING CASES, WITH THE COMMAND TO REPLAY THEM
+    private static void reportMismatches(long seed, List<Long> mismatches)
+    {
+        if (mismatches.isEmpty()) return;
+
+        StringBuilder indices = new StringBuilder();
+        for (int i = 0; i < Math.min(mismatches.size(), TestWorker.MAX_MISMATCHES_KEPT); i++)
+            indices.append(' ').append(mismatches.get(i));
+        System.out.println("\n    First mismatching cases (replay with --replay <seed> <index> ...):");
+        System.out.println("    --replay " + seed + indices);
+    }
+
+    // REGENERATE THE EXPRESSIONS OF THE GIVEN CASES OF THE RUN WITH THE GIVEN MASTER SEED
+    private static List<String> regenerate(long seed, List<Long> indices)
+    {
+        TestWorker worker = new TestWorker(seed, CaseLog.NONE);
+        List<String> expressions = new ArrayList<>();
+        for (long index : indices)
+            expressions.add(worker.generateCase(seed, index));
+        return expressions;
+    }
+
+    // SHRINK MISMATCHING EXPRESSIONS AND ADD THE NEW ONES TO THE MISMATCH CORPUS
+    private static void minimizeMismatches(RunOptions options, List<String> expressions)
+    {
+        long start = System.nanoTime();
+        Map<String, String> minimized = new LinkedHashMap<>();
+        int threads = Math.max(options.threads, Runtime.getRuntime().availableProcessors());
+        try (MismatchMinimizer minimizer = new MismatchMinimizer(threads)) {
+            for (String expression : expressions)
+                minimized.putIfAbsent(minimizer.minimize(expression), "seed " + options.seed + ": " + expression);
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        System.out.println("\n    Minimized " + expressions.size() + " mismatches to " + minimized.size()
+                + " distinct expressions in " + round(seconds, 2) + " s:");
+        int shown = 0;
+        for (String expression : minimized.keySet())
+            if (shown++ < TestWorker.MAX_MISMATCHES_KEPT) System.out.println("        " + expression);
+        try {
+            int added = MismatchMinimizer.addToCorpus(Path.of(MismatchMinimizer.CORPUS_FILE), minimized);
+            System.out.println("    " + added + " new expressions added to " + MismatchMinimizer.CORPUS_FILE);
+        } catch (IOException e) {
+            System.out.println("Writing the mismatch corpus failed: " + e.getMessage());
+        }
+    }
+
+    // REGENERATE AND RE-EVALUATE THE GIVEN CASES OF THE RUN WITH THE GIVEN MASTER SEED
+    private static void replayCases(long seed, long[] indices)
+    {
+        TestWorker worker = new TestWorker(seed, CaseLog.NONE);
+        for (long index : indices)
+        {
+            boolean mismatch = worker.runCase(index);
+            EvalResult calcResult = worker.lastCalcResult();
+
+            System.out.println("Case " + index + ": " + worker.lastExpression);
+            System.out.println("    oracle:     " + (worker.lastOracleError == null
+                    ? worker.lastOracleValue : "error (" + worker.lastOracleError + ")"));
+            System.out.println("    calculator: " + calcResult);
+            if (mismatch) System.out.println("    MISMATCH");
+        }
+    }
+
+    // ROUND DOUBLE VALUES TO TWO DECIMAL PLACES
+    public static double round(double value, int places) {
+        if (places < 0) throw new IllegalArgumentException();
+
+        BigDecimal bd = BigDecimal.valueOf(value);
+        bd = bd.setScale(places, RoundingMode.HALF_UP);
+        return bd.doubleValue();
+    }
+}
\ No newline at end of file
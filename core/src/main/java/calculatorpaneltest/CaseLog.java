@@ -0,0 +1,37 @@
+package calculatorpaneltest;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+// Destination of the test cases run by a TestWorker: the text file of expressions, or a
+// BinaryResultLog. Each worker has its own CaseLog, so implementations need not be thread safe.
+interface CaseLog extends Closeable {
+
+    // Record test case index of the run, and both evaluators' results
+    // (oracleValue is meaningless when oracleError is set)
+    void write(long index, String expression, boolean oracleError, double oracleValue,
+               EvalResult calcResult, boolean mismatch);
+
+    // Force the cases written so far to disk, returning the length of the log in bytes
+    // (-1 for logs that cannot be resumed, see Checkpoint)
+    default long sync() throws IOException
+    {
+        return -1;
+    }
+
+    // Close without IOException: logs report write failures when they are closed by their owner
+    @Override
+    void close();
+
+    // Log discarding every case (used by replays)
+    CaseLog NONE = new CaseLog() {
+        @Override
+        public void write(long index, String expression, boolean oracleError, double oracleValue,
+                          EvalResult calcResult, boolean mismatch)
+        {}
+
+        @Override
+        public void close()
+        {}
+    };
+}
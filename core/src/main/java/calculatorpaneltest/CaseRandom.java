@@ -0,0 +1,42 @@
+package calculatorpaneltest;
+
+import java.util.random.RandomGenerator;
+
+// Random generator for a single test case, derived from a master seed and the case index.
+//
+// Uses the SplitMix64 algorithm (the generator behind java.util.SplittableRandom): the state of
+// case N is a hash of (seed, N), so any case can be regenerated in O(1), independently of how many
+// cases ran before it or on which thread. reset() re-targets the generator without allocating.
+final class CaseRandom implements RandomGenerator {
+
+    // SplittableRandom's golden gamma: odd, and spreads consecutive indices across the state space
+    private static final long GOLDEN_GAMMA = 0x9e3779b97f4a7c15L;
+
+    private long state;
+
+    CaseRandom(long seed, long index)
+    {
+        reset(seed, index);
+    }
+
+    // Position the generator at the start of case index of the run with the given master seed
+    void reset(long seed, long index)
+    {
+        state = mix64(seed ^ mix64((index + 1) * GOLDEN_GAMMA));
+    }
+
+    @Override
+    public long nextLong()
+    {
+        state += GOLDEN_GAMMA;
+        return mix64(state);
+    }
+
+    // Stafford variant 13 of the MurmurHash3 finalizer, as used by SplittableRandom
+    private static long mix64(long z)
+    {
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        return z ^ (z >>> 31);
+    }
+}
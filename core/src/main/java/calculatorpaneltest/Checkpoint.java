@@ -0,0 +1,166 @@
+package calculatorpaneltest;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.zip.CRC32;
+
+// Progress of a long single-threaded run (CalculatorPanelTestClient --checkpoint), saved periodically so
+// that a run whose JVM dies can be continued with --resume instead of starting over.
+//
+// A checkpoint holds the master seed, case count and wall-clock budget (--duration) of the run, the
+// index of the next case (the whole random generator position, as case N is generated from
+// CaseRandom(seed, N)), the time the cases before it took, the stats array, the mismatching case
+// indices kept so far, and the length of the case log once the cases before the next one are on disk.
+// Resuming truncates the log to that length, so the log, the stats and the mismatches of a resumed run
+// are exactly those of an uninterrupted one, and only the rest of the budget is left to run.
+//
+// The log is forced to disk before the checkpoint is written, and the checkpoint is written to a
+// temporary file, forced to disk and renamed over the previous one, so a crash at any point leaves
+// either the old or the new checkpoint, each consistent with the log. A CRC guards against corruption.
+final class Checkpoint {
+
+    private static final int MAGIC = 0x4350434b;    // "CPCK"
+    private static final int VERSION = 2;
+
+    // Default time between checkpoints (--checkpoint-interval)
+    static final double DEFAULT_INTERVAL_SECONDS = 60;
+
+    private final Path file;
+    private final long intervalNanos;
+    private long due;
+    // When this JVM created or loaded the checkpoint, and the run's elapsed time at that point
+    private final long clock = System.nanoTime();
+    private long elapsedBefore;
+
+    // Run the checkpoint belongs to (durationNanos is 0 without --duration)
+    final long seed;
+    final long cases;
+    final long durationNanos;
+
+    // Next case to run, wall-clock time the run took before it, length of the case log before it,
+    // stats and mismatches of the cases before it
+    long nextCase;
+    long elapsedNanos;
+    long logOffset;
+    final long[] stats = new long[CalculatorPanelTestClient.STATS_LENGTH];
+    long[] mismatches = new long[0];
+
+    // Checkpoints of a new run of cases test cases and at most durationNanos (0 for no limit),
+    // saved to file every intervalNanos
+    Checkpoint(Path file, long intervalNanos, long seed, long cases, long durationNanos)
+    {
+        this.file = file;
+        this.intervalNanos = intervalNanos;
+        this.seed = seed;
+        this.cases = cases;
+        this.durationNanos = durationNanos;
+        this.due = System.nanoTime() + intervalNanos;
+    }
+
+    // LOAD THE LAST CHECKPOINT OF A RUN FROM file, TO RESUME IT
+    static Checkpoint load(Path file, long intervalNanos) throws IOException
+    {
+        byte[] bytes = Files.readAllBytes(file);
+        if (bytes.length < Long.BYTES) throw new IOException("Truncated checkpoint " + file);
+        CRC32 crc = new CRC32();
+        crc.update(bytes, 0, bytes.length - Long.BYTES);
+        if (crc.getValue() != ByteBuffer.wrap(bytes, bytes.length - Long.BYTES, Long.BYTES).getLong())
+            throw new IOException("Corrupt checkpoint " + file);
+
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes));
+        if (in.readInt() != MAGIC || in.readInt() != VERSION) throw new IOException("Not a checkpoint: " + file);
+        Checkpoint checkpoint = new Checkpoint(file, intervalNanos, in.readLong(), in.readLong(), in.readLong());
+        checkpoint.nextCase = in.readLong();
+        checkpoint.elapsedNanos = checkpoint.elapsedBefore = in.readLong();
+        checkpoint.logOffset = in.readLong();
+        if (in.readInt() != checkpoint.stats.length) throw new IOException("Checkpoint of another version: " + file);
+        for (int i = 0; i < checkpoint.stats.length; i++)
+            checkpoint.stats[i] = in.readLong();
+        checkpoint.mismatches = new long[in.readInt()];
+        for (int i = 0; i < checkpoint.mismatches.length; i++)
+            checkpoint.mismatches[i] = in.readLong();
+        return checkpoint;
+    }
+
+    // Wall-clock time left to the run when resumed (at least 1 once spent), or 0 without --duration
+    long remainingNanos()
+    {
+        return durationNanos == 0 ? 0 : Math.max(1, durationNanos - elapsedNanos);
+    }
+
+    // Whether the next checkpoint is due
+    boolean due()
+    {
+        return System.nanoTime() - due >= 0;
+    }
+
+    // SAVE THE STATE OF THE RUN BEFORE CASE nextCase (THE LOG MUST BE ON DISK UP TO logOffset)
+    void save(long next, long offset, long[] runStats, List<Long> runMismatches) throws IOException
+    {
+        nextCase = next;
+        elapsedNanos = elapsedBefore + (System.nanoTime() - clock);
+        logOffset = offset;
+        System.arraycopy(runStats, 0, stats, 0, stats.length);
+        mismatches = new long[runMismatches.size()];
+        for (int i = 0; i < mismatches.length; i++)
+            mismatches[i] = runMismatches.get(i);
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        out.writeLong(seed);
+        out.writeLong(cases);
+        out.writeLong(durationNanos);
+        out.writeLong(nextCase);
+        out.writeLong(elapsedNanos);
+        out.writeLong(logOffset);
+        out.writeInt(stats.length);
+        for (long count : stats)
+            out.writeLong(count);
+        out.writeInt(mismatches.length);
+        for (long index : mismatches)
+            out.writeLong(index);
+        CRC32 crc = new CRC32();
+        crc.update(bytes.toByteArray());
+        out.writeLong(crc.getValue());
+
+        // Write and force a temporary file, then atomically replace the previous checkpoint with it
+        Path temporary = file.resolveSibling(file.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer buffer = ByteBuffer.wrap(bytes.toByteArray());
+            while (buffer.hasRemaining())
+                channel.write(buffer);
+            channel.force(true);
+        }
+        try {
+            Files.move(temporary, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING);
+        }
+        forceDirectory(file.toAbsolutePath().getParent());
+        due = System.nanoTime() + intervalNanos;
+    }
+
+    // Make the rename durable: force the directory entry (not supported on every platform)
+    private static void forceDirectory(Path directory)
+    {
+        try (FileChannel channel = FileChannel.open(directory, StandardOpenOption.READ)) {
+            channel.force(true);
+        } catch (IOException e) {
+            // The rename is still atomic, only not yet durable
+        }
+    }
+}
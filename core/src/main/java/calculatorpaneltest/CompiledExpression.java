@@ -0,0 +1,218 @@
+package calculatorpaneltest;
+
+import java.util.Arrays;
+
+// A mathematical expression compiled once by CalculatorPanelEval.compile() into a flat
+// postfix token program, so that it can be evaluated repeatedly without re-parsing.
+//
+// Expressions compiled with variables are evaluated against bindings, one row at a time with
+// evaluate(double...), or over whole columns of bindings at once with evaluateBatch().
+
+public final class CompiledExpression {
+
+    // Number of rows evaluateBatch() processes per pass over the program
+    static final int BATCH_BLOCK = 256;
+
+    private static final double[] NO_BINDINGS = {};
+
+    // Postfix program, null if the expression has mismatched parenthesis
+    private final TokenBuffer program;
+
+    // Position of the mismatched bracket when program is null
+    private final int mismatch;
+
+    private final int variableCount;
+
+    // Deepest operand stack the program reaches, or -1 if evaluating it fails whatever the
+    // variables' values (missing operand, invalid token, too many operands, ...)
+    private final int maxDepth;
+
+    // Result holder for evaluate(), so that evaluating does not allocate
+    private static final ThreadLocal<EvalResult> THREAD_RESULT = ThreadLocal.withInitial(EvalResult::new);
+
+    CompiledExpression(TokenBuffer program, int mismatch, int variableCount)
+    {
+        // Fold constant work once here rather than on every evaluation (see RpnOptimizer)
+        if (program != null && maxStackDepth(program) >= 0)
+            program = RpnOptimizer.optimize(program);
+        this.program = program;
+        this.mismatch = mismatch;
+        this.variableCount = variableCount;
+        this.maxDepth = program == null ? -1 : maxStackDepth(program);
+    }
+
+    // Evaluate the compiled expression, binding its variables (in the order given to compile())
+    // to the given values.
+    // Errors are reported with a NumberFormatException, as CalculatorPanelEval.evaluate() always has.
+    public double evaluate(double... bindings)
+    {
+        EvalResult result = THREAD_RESULT.get();
+        if (!tryEvaluate(bindings, result))
+            throw new NumberFormatException(result.message());
+        return result.value();
+    }
+
+    // Evaluate without throwing, storing the value or error into result.
+    // Returns true if the expression evaluated successfully.
+    public boolean tryEvaluate(EvalResult result)
+    {
+        return tryEvaluate(NO_BINDINGS, result);
+    }
+
+    public boolean tryEvaluate(double[] bindings, EvalResult result)
+    {
+        checkBindings(bindings.length);
+        if (program == null)
+            return result.fail(EvalError.MISMATCHED_PARENTHESIS, mismatch);
+        return CalculatorPanelEval.evalRPN(program, bindings, result);
+    }
+
+    // Evaluate the expression for every row of the given columns of variable values
+    // (columns[v][row] is the value of variable v), storing the results into out.
+    // Rows whose evaluation fails (division by zero, ln of a negative number, ...) are set to NaN.
+    // Returns the number of such rows.
+    //
+    // The program is interpreted once per block of BATCH_BLOCK rows, each instruction running as a
+    // tight loop over the block (see BatchKernel), instead of once per row.
+    public int evaluateBatch(double[][] columns, double[] out)
+    {
+        checkBindings(columns.length);
+        int rows = out.length;
+        for (double[] column : columns)
+            if (column.length < rows)
+                throw new IllegalArgumentException("Every column needs at least " + rows + " values");
+
+        // Expressions that fail structurally fail for every row
+        if (maxDepth < 0) {
+            Arrays.fill(out, Double.NaN);
+            return rows;
+        }
+
+        // Operand stack of columns: entry k is either a constant (value[k]), a variable column
+        // (array[k] from offset[k]) or intermediate results, held in registers[k]
+        double[][] registers = new double[maxDepth][BATCH_BLOCK];
+        double[][] array = new double[maxDepth][];
+        int[] offset = new int[maxDepth];
+        boolean[] constant = new boolean[maxDepth];
+        double[] value = new double[maxDepth];
+        boolean[] error = new boolean[BATCH_BLOCK];
+
+        BatchKernel kernel = BatchKernel.INSTANCE;
+        int errors = 0;
+        for (int first = 0; first < rows; first += BATCH_BLOCK) {
+            int n = Math.min(BATCH_BLOCK, rows - first);
+            Arrays.fill(error, 0, n, false);
+            boolean allFailed = false;
+            int sp = 0;
+
+            for (int pc = 0; pc < program.size; pc++) {
+                int op = program.code[pc];
+                if (op == CalculatorPanelEval.NUMBER) {
+                    constant[sp] = true;
+                    value[sp++] = program.value[pc];
+                }
+                else if (op == CalculatorPanelEval.VARIABLE) {
+                    constant[sp] = false;
+                    array[sp] = columns[(int) program.value[pc]];
+                    offset[sp++] = first;
+                }
+                else if (op >= CalculatorPanelEval.SUB && op <= CalculatorPanelEval.POW) {
+                    // Binary operator: the result replaces the first operand
+                    int a = sp - 2, b = sp - 1;
+                    sp--;
+                    if (op == CalculatorPanelEval.DIV) {
+                        if (!constant[b]) kernel.flagZero(array[b], offset[b], error, n);
+                        else if (value[b] == 0.0) allFailed = true;
+                    }
+                    if (constant[a] && constant[b]) {
+                        value[a] = RpnOptimizer.applyBinary(op, value[a], value[b]);
+                        continue;
+                    }
+                    if (constant[a]) {
+                        Arrays.fill(registers[a], 0, n, value[a]);
+                        toRegister(a, registers, array, offset, constant);
+                    }
+                    if (constant[b])
+                        kernel.binary(op, array[a], offset[a], value[b], registers[a], n);
+                    else
+                        kernel.binary(op, array[a], offset[a], array[b], offset[b], registers[a], n);
+                    toRegister(a, registers, array, offset, constant);
+                }
+                else {
+                    // Function or NEG: the result replaces the argument
+                    int a = sp - 1;
+                    if (constant[a]) {
+                        double x = value[a];
+                        if ((op == CalculatorPanelEval.COT && x == 0.0)
+                                || ((op == CalculatorPanelEval.LN || op == CalculatorPanelEval.LOG) && x <= 0.0))
+                            allFailed = true;
+                        value[a] = RpnOptimizer.applyFunction(op, x);
+                        continue;
+                    }
+                    if (op == CalculatorPanelEval.COT)
+                        kernel.flagZero(array[a], offset[a], error, n);
+                    else if (op == CalculatorPanelEval.LN || op == CalculatorPanelEval.LOG)
+                        kernel.flagNonPositive(array[a], offset[a], error, n);
+                    kernel.unary(op, array[a], offset[a], registers[a], n);
+                    toRegister(a, registers, array, offset, constant);
+                }
+            }
+
+            // Check for double overflow, and store the block's results
+            if (constant[0]) {
+                Arrays.fill(out, first, first + n, value[0]);
+                if (Double.isInfinite(value[0])) allFailed = true;
+            } else {
+                kernel.flagInfinite(array[0], offset[0], error, n);
+                System.arraycopy(array[0], offset[0], out, first, n);
+            }
+            for (int i = 0; i < n; i++) {
+                if (allFailed || error[i]) {
+                    out[first + i] = Double.NaN;
+                    errors++;
+                }
+            }
+        }
+        return errors;
+    }
+
+    // Number of instructions in the compiled program
+    public int size()
+    {
+        return program == null ? 0 : program.size;
+    }
+
+    // Number of variables the expression was compiled with
+    public int variableCount()
+    {
+        return variableCount;
+    }
+
+    private void checkBindings(int count)
+    {
+        if (count < variableCount)
+            throw new IllegalArgumentException("Expected values for " + variableCount + " variables, got " + count);
+    }
+
+    private static void toRegister(int k, double[][] registers, double[][] array, int[] offset, boolean[] constant)
+    {
+        constant[k] = false;
+        array[k] = registers[k];
+        offset[k] = 0;
+    }
+
+    // Deepest operand stack the program reaches, or -1 if it fails structurally
+    static int maxStackDepth(TokenBuffer program)
+    {
+        int depth = 0, max = 0;
+        for (int pc = 0; pc < program.size; pc++) {
+            int op = program.code[pc];
+            if (op == CalculatorPanelEval.NUMBER || op == CalculatorPanelEval.VARIABLE) depth++;
+            else if (op >= CalculatorPanelEval.SUB && op <= CalculatorPanelEval.POW && depth >= 2) depth--;
+            else if ((op > CalculatorPanelEval.POW || op == CalculatorPanelEval.NEG) && depth >= 1) continue;
+            else return -1;
+            max = Math.max(max, depth);
+        }
+        return depth == 1 ? max : -1;
+    }
+}
@@ -0,0 +1,110 @@
+package calculatorpaneltest;
+
+// Coverage features of test cases, and how often each has been hit, for CoverageFuzzer.
+//
+// A case covers:
+//   - the transitions between consecutive tokens of its expression (token class pairs, with
+//     the start and end of the expression as pseudo-tokens), e.g. "} after ^" or "ln after (",
+//   - the evaluator branch the calculator returned from: its EvalError together with the class
+//     of the token it reported (so each "Error:" return of evalRPN() is its own feature),
+//   - the pair of outcomes (oracle failed or not, calculator EvalError),
+//   - the deepest bracket nesting, in buckets 0, 1, 2, 3, 4-7 and 8+.
+// Features are read from the tokens both evaluators were given, i.e. after TestWorker.format():
+// braces are parentheses and cot is "1 / tan" there, so neither has features of its own.
+final class Coverage {
+
+    // Token classes: invalid tokens, CalculatorPanelEval codes from CLOSE_PAREN up, then zero literals,
+    // negative literals and the start and end of the expression
+    private static final int CODE_OFFSET = 1 - CalculatorPanelEval.CLOSE_PAREN;
+    private static final int INVALID = 0, ZERO = CalculatorPanelEval.LOG + CODE_OFFSET + 1, NEGATIVE = ZERO + 1,
+            START = NEGATIVE + 1, END = START + 1, CLASSES = END + 1;
+
+    private static final int ERRORS = EvalError.values().length;
+    private static final int DEPTH_BUCKETS = 6;
+
+    private static final int TRANSITIONS = 0;
+    private static final int BRANCHES = TRANSITIONS + CLASSES * CLASSES;
+    private static final int OUTCOMES = BRANCHES + ERRORS * CLASSES;
+    private static final int DEPTHS = OUTCOMES + 2 * ERRORS;
+    static final int FEATURES = DEPTHS + DEPTH_BUCKETS;
+
+    // Number of cases that hit each feature
+    private final long[] hits = new long[FEATURES];
+    private int covered;
+
+    // Collect the features of a case into features, returning their number.
+    // tokens are the tokens the evaluators read (TestWorker.lastTokens()), which calc's error position indexes.
+    static int collect(TokenBuffer tokens, EvalResult calc, boolean oracleFailed, int[] features)
+    {
+        int n = 0;
+        int previous = START, depth = 0, maxDepth = 0;
+        for (int i = 0; i < tokens.size; i++) {
+            int current = tokenClass(tokens, i);
+            features[n++] = TRANSITIONS + previous * CLASSES + current;
+            previous = current;
+
+            int code = tokens.code[i];
+            if (code == CalculatorPanelEval.OPEN_PAREN)
+                maxDepth = Math.max(maxDepth, ++depth);
+            else if (code == CalculatorPanelEval.CLOSE_PAREN)
+                depth--;
+        }
+        features[n++] = TRANSITIONS + previous * CLASSES + END;
+
+        int errorAt = calc.position() >= 0 && calc.position() < tokens.size ? tokenClass(tokens, calc.position()) : END;
+        features[n++] = BRANCHES + calc.error().ordinal() * CLASSES + errorAt;
+        features[n++] = OUTCOMES + (oracleFailed ? ERRORS : 0) + calc.error().ordinal();
+        features[n++] = DEPTHS + depthBucket(maxDepth);
+        return n;
+    }
+
+    // Upper bound of collect()'s result for an expression of the given number of tokens
+    static int maxFeatures(int tokens)
+    {
+        return tokens + 4;
+    }
+
+    // Count a case's features as hit, returning true if any had never been hit before
+    boolean record(int[] features, int n)
+    {
+        boolean novel = false;
+        for (int i = 0; i < n; i++) {
+            if (hits[features[i]]++ == 0) {
+                covered++;
+                novel = true;
+            }
+        }
+        return novel;
+    }
+
+    // Rarity of a case's features: rarely hit features weigh the most
+    double rarity(int[] features, int n)
+    {
+        double score = 0;
+        for (int i = 0; i < n; i++)
+            score += 1.0 / (1 + hits[features[i]]);
+        return score;
+    }
+
+    // Number of distinct features hit so far
+    int covered()
+    {
+        return covered;
+    }
+
+    private static int tokenClass(TokenBuffer tokens, int i)
+    {
+        int code = tokens.code[i];
+        if (code == CalculatorPanelEval.NUMBER) {
+            if (tokens.value[i] == 0.0) return ZERO;
+            if (tokens.value[i] < 0.0) return NEGATIVE;
+        }
+        return code < CalculatorPanelEval.CLOSE_PAREN ? INVALID : code + CODE_OFFSET;
+    }
+
+    private static int depthBucket(int depth)
+    {
+        if (depth < 4) return depth;
+        return depth < 8 ? 4 : 5;
+    }
+}
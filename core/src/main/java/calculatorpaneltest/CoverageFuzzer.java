@@ -0,0 +1,388 @@
+package calculatorpaneltest;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SplittableRandom;
+
+// Coverage-guided differential fuzzing: instead of walking the symbol map uniformly like
+// ExpressionGenerator, each case is either
+//   - generated by a walk biased toward rarely taken symbol transitions, which now and then also
+//     steps off the grammar (e.g. "}" after "^", or a close symbol with no bracket open), or
+//   - a mutation of an expression from the corpus: cases that covered a feature (see Coverage)
+//     no earlier case had, picked preferably among those whose features are still rare.
+// Cases are run through TestWorker, so they are evaluated, counted and logged like in a normal run,
+// and their coverage is read from the tokens TestWorker evaluated.
+//
+// Mismatches are counted once per signature (operators and functions involved, bracket depth,
+// sign of the literals and how far apart the two results are), so that the fuzzer is rewarded for
+// finding new kinds of mismatches rather than variations of the same one.
+//
+// Usage: java calculatorpaneltest.CoverageFuzzer [CPU seconds per mode] [seed]
+//   runs the uniform generator and the fuzzer for the same CPU time and compares how many
+//   distinct mismatches each finds per CPU-second
+final class CoverageFuzzer {
+
+    // Uniformly generated cases run first, to seed the corpus
+    static final int SEED_CASES = 256;
+    static final int MAX_CORPUS = 4096;
+    static final int MAX_TOKENS = 200;
+
+    // Number of distinct mismatching expressions kept for the report
+    static final int MAX_EXAMPLES = 10;
+
+    // Every symbol of the generator's symbol map
+    private static final String[] SYMBOLS = {"(", "{", "digit", "-u", "sin (", "cos (", "tan (", "cot (",
+            "ln (", "log (", ".", "-", "+", "*", "/", "^", ")", "}"};
+    private static final int START = SYMBOLS.length;
+
+    // Tokens inserted by mutations
+    // (no braces: TestWorker.format() turns them into parentheses before evaluation)
+    private static final String[] VOCABULARY = {"(", ")", "+", "-", "*", "/", "^",
+            "sin", "cos", "tan", "cot", "ln", "log", "0", "1", "2"};
+    private static final String[] WRAPPERS = {"(", "sin (", "cos (", "tan (", "cot (", "ln (", "log ("};
+    private static final String[] INTERESTING_NUMBERS = {"0", "1", "2", "-1", "0.5", "0.1", "1e-308",
+            "1e308", "100000000", "3.141592653589793", "1.5707963267948966"};
+
+    final TestWorker worker;
+    private final boolean guided;
+    private final long seed;
+    private final SplittableRandom random;
+    private final Map<String, String[]> inputCheck = CalculatorPanelTestClient.createSymbolMap();
+    private final Map<String, Integer> symbolIndex = new HashMap<>();
+
+    // How often the biased walk took each transition, [previous symbol or START][next symbol]
+    private final long[][] transitions = new long[SYMBOLS.length + 1][SYMBOLS.length];
+
+    private final Coverage coverage = new Coverage();
+    private int[] features = new int[64];
+
+    private final List<String> corpus = new ArrayList<>();
+    private final List<int[]> corpusFeatures = new ArrayList<>();
+
+    private final Set<Long> signatures = new HashSet<>();
+    final List<String> examples = new ArrayList<>();
+
+    private long index;
+    private long cpuNanos;
+
+    // Fuzzer (guided) or uniform generator (not guided) writing its cases to log
+    CoverageFuzzer(long seed, CaseLog log, boolean guided)
+    {
+        this.worker = new TestWorker(seed, log);
+        this.guided = guided;
+        this.seed = seed;
+        this.random = new SplittableRandom(seed);
+        for (int i = 0; i < SYMBOLS.length; i++)
+            symbolIndex.put(SYMBOLS[i], i);
+    }
+
+    // Run the given number of cases
+    void run(long cases)
+    {
+        run(new RunControl(cases, 0, 0));
+    }
+
+    // Run cases for as long as control lets them
+    void run(RunControl control)
+    {
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        long start = threads.getCurrentThreadCpuTime();
+        for (long i = 0; control.proceed(i); i++)
+            control.completed(step());
+        cpuNanos += threads.getCurrentThreadCpuTime() - start;
+    }
+
+    // Run cases until the given CPU time has been spent
+    void runFor(long nanos)
+    {
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        long start = threads.getCurrentThreadCpuTime();
+        long end = start + nanos;
+        long now;
+        do {
+            for (int i = 0; i < 64; i++)
+                step();
+        } while ((now = threads.getCurrentThreadCpuTime()) < end);
+        cpuNanos += now - start;
+    }
+
+    // RUN ONE CASE, AND LEARN FROM ITS COVERAGE
+    // Returns true if the calculator and the oracle disagree on the case
+    private boolean step()
+    {
+        String expr;
+        int choice = random.nextInt(4);
+        if (!guided || index < SEED_CASES || choice == 0)
+            expr = worker.generateCase(seed, index);
+        else if (corpus.isEmpty() || choice == 1)
+            expr = generateBiased();
+        else
+            expr = mutate(pick());
+
+        boolean mismatch = worker.runExpression(index++, expr);
+
+        TokenBuffer tokens = worker.lastTokens();
+        int needed = Coverage.maxFeatures(tokens.size);
+        if (features.length < needed) features = new int[Math.max(needed, features.length * 2)];
+        int n = Coverage.collect(tokens, worker.lastCalcResult(), worker.lastOracleError != null, features);
+        boolean novel = coverage.record(features, n);
+
+        if (mismatch && signatures.add(signature(tokens))) {
+            novel = true;
+            if (examples.size() < MAX_EXAMPLES) examples.add(expr);
+        }
+        if (novel && guided)
+            addToCorpus(expr, Arrays.copyOf(features, n));
+        return mismatch;
+    }
+
+    // Signature of the mismatch of the last case, whose evaluated tokens are tokens
+    private long signature(TokenBuffer tokens)
+    {
+        long operators = 0;
+        int depth = 0, maxDepth = 0;
+        boolean zero = false, negative = false;
+        for (int i = 0; i < tokens.size; i++) {
+            int code = tokens.code[i];
+            if (code >= 0) operators |= 1L << code;
+            else if (code == CalculatorPanelEval.OPEN_PAREN)
+                maxDepth = Math.max(maxDepth, ++depth);
+            else if (code == CalculatorPanelEval.CLOSE_PAREN)
+                depth--;
+            else if (code == CalculatorPanelEval.NUMBER) {
+                zero |= tokens.value[i] == 0.0;
+                negative |= tokens.value[i] < 0.0;
+            }
+        }
+
+        // How far apart the results are: NaN against a number, infinities, then decimal digits in common
+        double a = worker.lastOracleValue, b = worker.lastCalcResult().value();
+        int difference;
+        if (Double.isNaN(a) || Double.isNaN(b)) difference = 0;
+        else if (Double.isInfinite(a) || Double.isInfinite(b)) difference = 1;
+        else {
+            double relative = Math.abs(a - b) / Math.max(Math.abs(a), Math.abs(b));
+            difference = 2 + (int) Math.min(20, Math.max(0, -Math.log10(relative)));
+        }
+
+        return operators | (long) Math.min(maxDepth, 15) << 16 | (zero ? 1L : 0) << 20 | (negative ? 1L : 0) << 21
+                | (long) difference << 24;
+    }
+
+    // PICK A CORPUS ENTRY, PREFERRING THOSE WHOSE FEATURES ARE RARE
+    private String pick()
+    {
+        int best = random.nextInt(corpus.size());
+        double bestRarity = rarity(best);
+        for (int k = 0; k < 3; k++) {
+            int candidate = random.nextInt(corpus.size());
+            double candidateRarity = rarity(candidate);
+            if (candidateRarity > bestRarity) {
+                best = candidate;
+                bestRarity = candidateRarity;
+            }
+        }
+        return corpus.get(best);
+    }
+
+    private double rarity(int entry)
+    {
+        int[] entryFeatures = corpusFeatures.get(entry);
+        return coverage.rarity(entryFeatures, entryFeatures.length);
+    }
+
+    // Add an expression to the corpus, replacing a common one if the corpus is full
+    private void addToCorpus(String expr, int[] exprFeatures)
+    {
+        if (corpus.size() < MAX_CORPUS) {
+            corpus.add(expr);
+            corpusFeatures.add(exprFeatures);
+            return;
+        }
+        int worst = random.nextInt(corpus.size());
+        for (int k = 0; k < 7; k++) {
+            int candidate = random.nextInt(corpus.size());
+            if (rarity(candidate) < rarity(worst)) worst = candidate;
+        }
+        corpus.set(worst, expr);
+        corpusFeatures.set(worst, exprFeatures);
+    }
+
+    // GENERATE AN EXPRESSION, FAVORING RARELY TAKEN TRANSITIONS OF THE SYMBOL MAP
+    // Follows ExpressionGenerator.generateExpression(), except that each next symbol is drawn with a
+    // weight of 1 / (1 + times the transition was taken), and one step in 16 may take any symbol.
+    private String generateBiased()
+    {
+        StringBuilder sb = new StringBuilder();
+        StringBuilder openBrackets = new StringBuilder();
+        int size = random.nextInt(8) == 0 ? 3 + random.nextInt(100) : 3 + random.nextInt(28);
+
+        int previous = START;
+        String symbol = choose(previous, CalculatorPanelTestClient.OPEN_SYMBOLS);
+        for (int count = 0; count < size; count++) {
+            if (count > 0) {
+                boolean anySymbol = random.nextInt(16) == 0;
+                String[] options = anySymbol ? SYMBOLS : inputCheck.get(symbol.equals(".") ? "digit" : symbol);
+                previous = symbolIndex.get(symbol);
+                symbol = choose(previous, options);
+                if (!anySymbol && (symbol.equals(")") || symbol.equals("}"))) {
+                    // In the grammar, a close symbol closes the last bracket with the matching kind
+                    if (openBrackets.length() == 0) continue;
+                    symbol = openBrackets.charAt(openBrackets.length() - 1) == '(' ? ")" : "}";
+                }
+            }
+            transitions[previous][symbolIndex.get(symbol)]++;
+            append(sb, openBrackets, symbol, previous);
+        }
+
+        if (!symbol.equals("digit") && !symbol.equals(".") && !symbol.equals(")") && !symbol.equals("}"))
+            sb.append(number()).append(' ');
+        for (int i = openBrackets.length() - 1; i >= 0; i--)
+            sb.append(openBrackets.charAt(i) == '(' ? ")" : "}").append(' ');
+        return sb.toString();
+    }
+
+    private String choose(int previous, String[] options)
+    {
+        double total = 0;
+        for (String option : options)
+            total += 1.0 / (1 + transitions[previous][symbolIndex.get(option)]);
+        double x = random.nextDouble() * total;
+        for (String option : options) {
+            x -= 1.0 / (1 + transitions[previous][symbolIndex.get(option)]);
+            if (x < 0) return option;
+        }
+        return options[options.length - 1];
+    }
+
+    private void append(StringBuilder sb, StringBuilder openBrackets, String symbol, int previous)
+    {
+        switch (symbol) {
+            case "digit" -> sb.append(number()).append(' ');
+            case "." -> {
+                if (previous == symbolIndex.get("digit")) sb.setLength(sb.length() - 1);
+                sb.append('.').append(random.nextLong(CalculatorPanelTestClient.DIGIT_RANGE)).append(' ');
+            }
+            case "-u" -> sb.append("( 0 - 1 ) * ");
+            case ")", "}" -> {
+                if (openBrackets.length() > 0) openBrackets.setLength(openBrackets.length() - 1);
+                sb.append(symbol).append(' ');
+            }
+            default -> {
+                if (symbol.equals("{")) openBrackets.append('{');
+                else if (symbol.endsWith("(")) openBrackets.append('(');
+                sb.append(symbol).append(' ');
+            }
+        }
+    }
+
+    // A literal as the generator writes it, or now and then an interesting value
+    private String number()
+    {
+        if (random.nextInt(4) == 0)
+            return INTERESTING_NUMBERS[random.nextInt(INTERESTING_NUMBERS.length)];
+        long value = random.nextLong(CalculatorPanelTestClient.DIGIT_RANGE) - CalculatorPanelTestClient.DIGIT_RANGE / 2;
+        return value < 0 ? "( 0 - 1 ) * " + -value : Long.toString(value);
+    }
+
+    // APPLY ONE TO FOUR RANDOM TOKEN-LEVEL MUTATIONS TO AN EXPRESSION
+    private String mutate(String expr)
+    {
+        List<String> t = new ArrayList<>(Arrays.asList(expr.trim().split("\\s+")));
+        int rounds = 1 + random.nextInt(4);
+        for (int round = 0; round < rounds; round++) {
+            int i = random.nextInt(t.size());
+            switch (random.nextInt(6)) {
+                case 0 -> t.set(i, VOCABULARY[random.nextInt(VOCABULARY.length)]);
+                case 1 -> t.add(i, VOCABULARY[random.nextInt(VOCABULARY.length)]);
+                case 2 -> {
+                    if (t.size() > 1) t.remove(i);
+                }
+                case 3 -> {
+                    // Replace a number with an interesting one
+                    for (int k = 0; k < t.size(); k++) {
+                        int j = (i + k) % t.size();
+                        if (Character.isDigit(t.get(j).charAt(t.get(j).length() - 1))) {
+                            t.set(j, INTERESTING_NUMBERS[random.nextInt(INTERESTING_NUMBERS.length)]);
+                            break;
+                        }
+                    }
+                }
+                case 4 -> {
+                    // Splice: this expression's head with another corpus expression's tail
+                    String[] other = corpus.get(random.nextInt(corpus.size())).trim().split("\\s+");
+                    int j = random.nextInt(other.length);
+                    t.subList(i, t.size()).clear();
+                    t.addAll(Arrays.asList(other).subList(j, other.length));
+                }
+                default -> {
+                    // Wrap tokens [i, j] in brackets or a function
+                    int j = i + random.nextInt(t.size() - i);
+                    String open = WRAPPERS[random.nextInt(WRAPPERS.length)];
+                    t.add(j + 1, ")");
+                    t.add(i, open);
+                }
+            }
+            if (t.isEmpty()) t.add(INTERESTING_NUMBERS[random.nextInt(INTERESTING_NUMBERS.length)]);
+        }
+        if (t.size() > MAX_TOKENS) t.subList(MAX_TOKENS, t.size()).clear();
+        return String.join(" ", t) + " ";
+    }
+
+    // Statistics of the cases run, as TestWorker counts them
+    long[] stats()
+    {
+        return worker.stats;
+    }
+
+    long cases()
+    {
+        return index;
+    }
+
+    long distinctMismatches()
+    {
+        return signatures.size();
+    }
+
+    double cpuSeconds()
+    {
+        return cpuNanos / 1e9;
+    }
+
+    // SUMMARIZE THE COVERAGE AND MISMATCHES FOUND
+    String report()
+    {
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format("    %d cases in %.1f CPU-seconds, %d of %d coverage features hit, corpus of %d%n",
+                index, cpuSeconds(), coverage.covered(), Coverage.FEATURES, corpus.size()));
+        sb.append(String.format("    %d distinct mismatches (%.2f per CPU-second) out of %d mismatches%n",
+                distinctMismatches(), distinctMismatches() / Math.max(cpuSeconds(), 1e-9),
+                worker.stats[4]));
+        for (String example : examples)
+            sb.append("        ").append(example).append('\n');
+        return sb.toString();
+    }
+
+    // COMPARE THE UNIFORM GENERATOR AND THE FUZZER FOR THE SAME CPU TIME
+    public static void main(String[] args)
+    {
+        double seconds = args.length > 0 ? Double.parseDouble(args[0]) : 30;
+        long seed = args.length > 1 ? Long.parseLong(args[1]) : new SplittableRandom().nextLong();
+        System.out.println("Seed: " + seed);
+
+        for (boolean guided : new boolean[] {false, true}) {
+            CoverageFuzzer fuzzer = new CoverageFuzzer(seed, CaseLog.NONE, guided);
+            fuzzer.runFor((long) (seconds * 1e9));
+            System.out.println(guided ? "\nCoverage-guided fuzzer:" : "\nUniform generator:");
+            System.out.print(fuzzer.report());
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package calculatorpaneltest;
+
+import java.util.Arrays;
+
+// Growable stack of primitive doubles, used in place of LinkedList<Double> so that pushing an
+// operand neither allocates a node nor boxes the value. Not synchronized: each evaluator (or thread)
+// keeps its own instance and reuses it across evaluations.
+
+final class DoubleStack {
+
+    private double[] items;
+    private int size;
+
+    DoubleStack()
+    {
+        this(16);
+    }
+
+    DoubleStack(int capacity)
+    {
+        items = new double[Math.max(capacity, 1)];
+    }
+
+    void push(double value)
+    {
+        if (size == items.length) items = Arrays.copyOf(items, size * 2);
+        items[size++] = value;
+    }
+
+    double pop()
+    {
+        return items[--size];
+    }
+
+    double peek()
+    {
+        return items[size - 1];
+    }
+
+    // Replace the top of the stack (saves a pop and push for unary operators)
+    void set(double value)
+    {
+        items[size - 1] = value;
+    }
+
+    int size()
+    {
+        return size;
+    }
+
+    boolean isEmpty()
+    {
+        return size == 0;
+    }
+
+    void clear()
+    {
+        size = 0;
+    }
+}
@@ -0,0 +1,31 @@
+package calculatorpaneltest;
+
+// Outcome codes of the CalculatorPanel evaluator, replacing the "Error: ..." Strings that
+// evalRPN() used to return. NONE marks a successful evaluation.
+public enum EvalError {
+
+    NONE(""),
+    MISMATCHED_PARENTHESIS("Error: Mismatched parenthesis"),
+    INVALID_TOKEN("Error: invalid token"),
+    MISSING_OPERAND("Error: Missing operand"),
+    MISSING_FUNCTION_ARGUMENT("Error: Missing function argument"),
+    TOO_MANY_OPERANDS("Error: too many operands."),
+    DIVISION_BY_ZERO("Error: Division by zero is undefined"),
+    COT_OF_ZERO("Error: cot ( 0 ) is undefined"),
+    LN_DOMAIN("Error: ln ( n <= 0 ) is undefined"),
+    LOG_DOMAIN("Error: log ( n <= 0 ) is undefined"),
+    OVERFLOW("Error: Loss of precision due to double overflow.");
+
+    private final String message;
+
+    EvalError(String message)
+    {
+        this.message = message;
+    }
+
+    // CalculatorPanel error message
+    public String message()
+    {
+        return message;
+    }
+}
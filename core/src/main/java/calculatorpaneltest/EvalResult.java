@@ -0,0 +1,64 @@
+package calculatorpaneltest;
+
+// Result of a CalculatorPanel evaluation: either a value, or an error code and the position
+// (index among the expression's tokens) of the token that caused it.
+//
+// Results are mutable so that callers evaluating many expressions can reuse a single instance
+// and evaluate without allocating or throwing.
+public final class EvalResult {
+
+    private double value;
+    private EvalError error = EvalError.NONE;
+    private int position = -1;
+
+    public boolean isError()
+    {
+        return error != EvalError.NONE;
+    }
+
+    // Value of a successful evaluation (NaN if the evaluation failed)
+    public double value()
+    {
+        return value;
+    }
+
+    public EvalError error()
+    {
+        return error;
+    }
+
+    // Index of the offending token, or -1 if the error concerns the whole expression
+    // (empty expression, too many operands, overflow)
+    public int position()
+    {
+        return position;
+    }
+
+    // CalculatorPanel error message, including the token position if there is one
+    public String message()
+    {
+        return position < 0 ? error.message() : error.message() + " (token " + position + ")";
+    }
+
+    void succeed(double result)
+    {
+        value = result;
+        error = EvalError.NONE;
+        position = -1;
+    }
+
+    // Always returns false, so evaluators can "return result.fail(...)"
+    boolean fail(EvalError evalError, int tokenPosition)
+    {
+        value = Double.NaN;
+        error = evalError;
+        position = tokenPosition;
+        return false;
+    }
+
+    @Override
+    public String toString()
+    {
+        return isError() ? message() : Double.toString(value);
+    }
+}
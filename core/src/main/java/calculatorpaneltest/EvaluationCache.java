@@ -0,0 +1,328 @@
+package calculatorpaneltest;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+// Bounded cache of evaluation results, shared by any number of CalculatorPanelEval instances
+// (see CalculatorPanelEval(EvaluationCache)) and threads.
+//
+// Expressions are keyed on their normalized tokens rather than their text: whitespace is ignored,
+// numbers are compared by value ("2.50" is "2.5") and braces are keyed as parentheses, so
+// "{ 1 + 2 }" and "(1+2)" share an entry. Expressions with mismatched brackets are not cached,
+// since for those the kind of bracket matters.
+//
+// The cache is split into segments, each with its own lock, LRU order and memory budget, so that
+// concurrent lookups only contend when they hash to the same segment. New entries are admitted
+// TinyLFU-style: when a segment is full, a candidate only replaces the least recently used entry
+// if it has been looked up more often recently (per a small count-min sketch). Expressions seen
+// once, like most generated test cases, then cannot flush out the ones that keep coming back.
+
+public final class EvaluationCache {
+
+    private static final int SEGMENTS = 16;
+
+    // Approximate heap footprint of an entry besides its key's tokens: the map entry, the key
+    // object and its array header, and the cached result
+    private static final int ENTRY_OVERHEAD = 128;
+
+    private final Segment[] segments = new Segment[SEGMENTS];
+    private final long maxBytes;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder rejections = new LongAdder();
+
+    // Create a cache holding at most about maxBytes of keys and results
+    public EvaluationCache(long maxBytes)
+    {
+        if (maxBytes <= 0) throw new IllegalArgumentException("Cache size must be positive, got " + maxBytes);
+        this.maxBytes = maxBytes;
+        long segmentBytes = Math.max(maxBytes / SEGMENTS, 1);
+        for (int i = 0; i < SEGMENTS; i++)
+            segments[i] = new Segment(segmentBytes);
+    }
+
+    // Look up the result of an expression, copying it into result if present
+    boolean get(Key key, EvalResult result)
+    {
+        Segment segment = segmentFor(key);
+        Entry entry;
+        synchronized (segment) {
+            segment.sketch.increment(key.hash);
+            entry = segment.map.get(key);
+            if (entry != null) {
+                if (entry.error == EvalError.NONE) result.succeed(entry.value);
+                else result.fail(entry.error, entry.position);
+            }
+        }
+        if (entry == null) {
+            misses.increment();
+            return false;
+        }
+        hits.increment();
+        return true;
+    }
+
+    // Store the result of an expression, if the admission policy lets it in.
+    // key may be a reused lookup key: the cache keeps its own copy.
+    void put(Key key, EvalResult result)
+    {
+        Entry entry = new Entry(result, ENTRY_OVERHEAD + 8L * key.length);
+        Segment segment = segmentFor(key);
+        synchronized (segment) {
+            if (entry.weight > segment.maxWeight || segment.map.containsKey(key)) return;
+
+            // Make room, as long as the candidate is more frequent than the entries it replaces
+            int candidateFrequency = segment.sketch.frequency(key.hash);
+            Iterator<Map.Entry<Key, Entry>> eldest = segment.map.entrySet().iterator();
+            while (segment.weight + entry.weight > segment.maxWeight) {
+                Map.Entry<Key, Entry> victim = eldest.next();
+                if (segment.sketch.frequency(victim.getKey().hash) >= candidateFrequency) {
+                    rejections.increment();
+                    return;
+                }
+                eldest.remove();
+                segment.weight -= victim.getValue().weight;
+                evictions.increment();
+            }
+
+            segment.map.put(key.copy(), entry);
+            segment.weight += entry.weight;
+        }
+    }
+
+    public long hits()
+    {
+        return hits.sum();
+    }
+
+    public long misses()
+    {
+        return misses.sum();
+    }
+
+    // Entries removed to make room for more frequently used ones
+    public long evictions()
+    {
+        return evictions.sum();
+    }
+
+    // New entries turned away because they were used less often than the ones they would replace
+    public long rejections()
+    {
+        return rejections.sum();
+    }
+
+    public double hitRate()
+    {
+        long hitCount = hits(), total = hitCount + misses();
+        return total == 0 ? 0.0 : (double) hitCount / total;
+    }
+
+    // Number of cached expressions
+    public long size()
+    {
+        long size = 0;
+        for (Segment segment : segments)
+            synchronized (segment) {
+                size += segment.map.size();
+            }
+        return size;
+    }
+
+    // Estimated heap footprint of the cached keys and results, in bytes
+    public long weightedSize()
+    {
+        long weight = 0;
+        for (Segment segment : segments)
+            synchronized (segment) {
+                weight += segment.weight;
+            }
+        return weight;
+    }
+
+    public long maxBytes()
+    {
+        return maxBytes;
+    }
+
+    @Override
+    public String toString()
+    {
+        return String.format("%d entries (%d of %d bytes), %d hits, %d misses (%.1f%% hit rate), "
+                        + "%d evictions, %d rejections",
+                size(), weightedSize(), maxBytes, hits(), misses(), 100 * hitRate(), evictions(), rejections());
+    }
+
+    private Segment segmentFor(Key key)
+    {
+        return segments[(key.hash >>> 28) & (SEGMENTS - 1)];
+    }
+
+    // Normalized token form of an expression. A CalculatorPanelEval reuses one Key for its lookups,
+    // so that a cache hit does not allocate.
+    static final class Key {
+
+        private long[] data;
+        private int length;
+        private int hash;
+
+        Key()
+        {
+            this(new long[32], 0, 0);
+        }
+
+        private Key(long[] data, int length, int hash)
+        {
+            this.data = data;
+            this.length = length;
+            this.hash = hash;
+        }
+
+        // Set this key to the normalized form of tokens, using brackets as scratch.
+        // Returns false if the brackets are mismatched, in which case the expression is not cached.
+        boolean set(TokenBuffer tokens, IntStack brackets)
+        {
+            brackets.clear();
+            length = 0;
+            for (int i = 0; i < tokens.size; i++) {
+                int code = tokens.code[i];
+                if (code == CalculatorPanelEval.OPEN_PAREN || code == CalculatorPanelEval.OPEN_BRACE) {
+                    brackets.push(code);
+                    code = CalculatorPanelEval.OPEN_PAREN;
+                }
+                else if (code == CalculatorPanelEval.CLOSE_PAREN || code == CalculatorPanelEval.CLOSE_BRACE) {
+                    // Close codes are one below their open codes
+                    if (brackets.isEmpty() || brackets.pop() != code + 1) return false;
+                    code = CalculatorPanelEval.CLOSE_PAREN;
+                }
+                append(code);
+                if (code == CalculatorPanelEval.NUMBER || code == CalculatorPanelEval.VARIABLE)
+                    append(Double.doubleToLongBits(tokens.value[i]));
+            }
+            if (!brackets.isEmpty()) return false;
+
+            long h = length;
+            for (int i = 0; i < length; i++)
+                h = (h ^ data[i]) * 0x9e3779b97f4a7c15L;
+            hash = (int) (h ^ (h >>> 32));
+            return true;
+        }
+
+        private void append(long word)
+        {
+            if (length == data.length) data = Arrays.copyOf(data, length * 2);
+            data[length++] = word;
+        }
+
+        Key copy()
+        {
+            return new Key(Arrays.copyOf(data, length), length, hash);
+        }
+
+        @Override
+        public boolean equals(Object o)
+        {
+            if (!(o instanceof Key other)) return false;
+            return hash == other.hash && Arrays.equals(data, 0, length, other.data, 0, other.length);
+        }
+
+        @Override
+        public int hashCode()
+        {
+            return hash;
+        }
+    }
+
+    // Cached outcome of an evaluation
+    private static final class Entry {
+        final double value;
+        final EvalError error;
+        final int position;
+        final long weight;
+
+        Entry(EvalResult result, long weight)
+        {
+            this.value = result.value();
+            this.error = result.error();
+            this.position = result.position();
+            this.weight = weight;
+        }
+    }
+
+    private static final class Segment {
+        // Access-ordered: iteration starts at the least recently used entry
+        final LinkedHashMap<Key, Entry> map = new LinkedHashMap<>(16, 0.75f, true);
+        final FrequencySketch sketch;
+        final long maxWeight;
+        long weight;
+
+        Segment(long maxWeight)
+        {
+            this.maxWeight = maxWeight;
+            this.sketch = new FrequencySketch((int) Math.min(maxWeight / ENTRY_OVERHEAD, 1 << 20));
+        }
+    }
+
+    // Count-min sketch of 4-bit counters estimating how often each key was looked up recently.
+    // Every counter is halved once the sketch has counted 10 increments per slot, so that
+    // frequencies age and an expression that stopped coming back eventually loses its place.
+    private static final class FrequencySketch {
+
+        private static final long[] SEEDS = {
+                0xc3a5c85c97cb3127L, 0xb492b66fbe98f273L, 0x9ae16a3b2f90404fL, 0xcbf29ce484222325L};
+
+        // Each long holds 16 counters
+        private final long[] table;
+        private final int sampleSize;
+        private int additions;
+
+        FrequencySketch(int expectedEntries)
+        {
+            int slots = Integer.highestOneBit(Math.max(expectedEntries, 16) - 1) << 1;
+            table = new long[slots];
+            sampleSize = 10 * slots;
+        }
+
+        int frequency(int hash)
+        {
+            int frequency = 15;
+            for (int k = 0; k < SEEDS.length; k++)
+                frequency = Math.min(frequency, (int) (table[index(hash, k)] >>> shift(hash, k)) & 15);
+            return frequency;
+        }
+
+        void increment(int hash)
+        {
+            boolean added = false;
+            for (int k = 0; k < SEEDS.length; k++) {
+                int index = index(hash, k), shift = shift(hash, k);
+                if (((table[index] >>> shift) & 15) != 15) {
+                    table[index] += 1L << shift;
+                    added = true;
+                }
+            }
+            if (added && ++additions == sampleSize) {
+                for (int i = 0; i < table.length; i++)
+                    table[i] = (table[i] >>> 1) & 0x7777777777777777L;
+                additions /= 2;
+            }
+        }
+
+        private int index(int hash, int k)
+        {
+            long h = (hash + SEEDS[k]) * SEEDS[k];
+            return (int) (h ^ (h >>> 32)) & (table.length - 1);
+        }
+
+        // Bit offset of the counter of hash function k within its long
+        private static int shift(int hash, int k)
+        {
+            return ((hash >>> (k << 2)) & 15) << 2;
+        }
+    }
+}
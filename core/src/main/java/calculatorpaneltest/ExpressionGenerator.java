@@ -0,0 +1,159 @@
+package calculatorpaneltest;
+
+import java.util.random.RandomGenerator;
+
+// Random test expression generator: the grammar of CalculatorPanelTestClient's symbol tables compiled
+// into int symbols and transition tables, so that generating an expression needs no map lookups or
+// string comparisons, and fills reusable buffers instead of building and rewriting new strings.
+//
+// Each expression is written twice as it is generated:
+//   - expression: as logged and replayed, e.g. "cot ( { 5 } ) ",
+//   - formatted:  ready for both evaluators (TestWorker.format() applied), e.g. "1 / tan ( ( 5 ) ) ".
+// Unary minus is written directly as "( 0 - 1 ) * " in both.
+//
+// Expressions, and the random draws made for them, are exactly those of the original string-based
+// generator, so that the cases of a (seed, index) are the same as in earlier runs.
+final class ExpressionGenerator {
+
+    // Symbols, in the order of CalculatorPanelTestClient.OPEN_SYMBOLS, then the others
+    static final int OPEN_PAREN = 0, OPEN_BRACE = 1, DIGIT = 2, UNARY_MINUS = 3,
+            SIN = 4, COS = 5, TAN = 6, COT = 7, LN = 8, LOG = 9,
+            DECIMAL = 10, SUB = 11, ADD = 12, MUL = 13, DIV = 14, POW = 15,
+            CLOSE_PAREN = 16, CLOSE_BRACE = 17;
+
+    // Text of each symbol, as generated and formatted for the evaluators
+    private static final String[] TEXT = {"( ", "{ ", null, "( 0 - 1 ) *  ", "sin ( ", "cos ( ", "tan ( ",
+            "cot ( ", "ln ( ", "log ( ", null, "- ", "+ ", "* ", "/ ", "^ ", ") ", "} "};
+    private static final String[] FORMATTED = {"( ", "( ", null, "( 0 - 1 ) *  ", "sin ( ", "cos ( ", "tan ( ",
+            "1 / tan ( ", "ln ( ", "log ( ", null, "- ", "+ ", "* ", "/ ", "^ ", ") ", ") "};
+
+    // Symbols that may follow each symbol (CalculatorPanelTestClient.createSymbolMap()), and the first symbol
+    private static final int[] AFTER_OPERATOR = {OPEN_PAREN, OPEN_BRACE, DIGIT, UNARY_MINUS, SIN, COS, TAN, COT, LN, LOG};
+    private static final int[] AFTER_DIGIT = {DECIMAL, SUB, ADD, MUL, DIV, POW, CLOSE_PAREN, CLOSE_BRACE};
+    private static final int[] AFTER_CLOSE = {CLOSE_PAREN, CLOSE_BRACE, SUB, ADD, MUL, DIV, POW};
+    private static final int[] FIRST = AFTER_OPERATOR;
+    private static final int[][] NEXT = new int[CLOSE_BRACE + 1][];
+
+    static {
+        for (int symbol = 0; symbol < NEXT.length; symbol++)
+            NEXT[symbol] = AFTER_OPERATOR;
+        NEXT[DIGIT] = NEXT[DECIMAL] = AFTER_DIGIT;
+        NEXT[CLOSE_PAREN] = NEXT[CLOSE_BRACE] = AFTER_CLOSE;
+    }
+
+    private static final long DIGIT_RANGE = CalculatorPanelTestClient.DIGIT_RANGE;
+
+    // Last generated expression, in both forms
+    final StringBuilder expression = new StringBuilder(256);
+    final StringBuilder formatted = new StringBuilder(256);
+
+    // Kinds of the open brackets (OPEN_PAREN or OPEN_BRACE; functions open a parenthesis)
+    private final IntStack brackets = new IntStack();
+
+    // GENERATE A RANDOM EXPRESSION INTO expression AND formatted
+    void generateExpression(RandomGenerator r)
+    {
+        expression.setLength(0);
+        formatted.setLength(0);
+        brackets.clear();
+
+        // Randomly determine size of generated expression
+        int exprSize = r.nextInt(28) + 3;
+
+        // Opening symbol
+        int symbol = FIRST[r.nextInt(FIRST.length)];
+        if (symbol == DIGIT)
+            appendNumber(r);
+        else
+            appendSymbol(symbol);
+
+        // Counter for expression length
+        int count = 1;
+        while (count < exprSize)
+        {
+            int[] options = NEXT[symbol];
+            symbol = options[r.nextInt(options.length)];
+
+            switch (symbol) {
+                case DECIMAL -> {
+                    // Fraction digits directly after the last number
+                    expression.setLength(expression.length() - 1);
+                    formatted.setLength(formatted.length() - 1);
+                    long fraction = r.nextLong(DIGIT_RANGE);
+                    append('.').append(fraction).append(' ');
+                    count++;
+                }
+                case DIGIT -> {
+                    // Negative numbers do not count toward the expression size
+                    if (appendNumber(r)) count++;
+                }
+                case CLOSE_PAREN, CLOSE_BRACE -> {
+                    // Close the last open bracket with its own kind, or skip the symbol if none is open
+                    if (!brackets.isEmpty()) {
+                        symbol = brackets.pop() == OPEN_BRACE ? CLOSE_BRACE : CLOSE_PAREN;
+                        appendSymbol(symbol);
+                        count++;
+                    }
+                }
+                default -> {
+                    appendSymbol(symbol);
+                    count++;
+                }
+            }
+        }
+
+        // End with a number unless the last symbol closes a bracket
+        if (symbol != DIGIT && symbol != DECIMAL && symbol != CLOSE_PAREN && symbol != CLOSE_BRACE)
+            append(r.nextLong(DIGIT_RANGE) - DIGIT_RANGE / 2).append(' ');
+
+        // Close opened brackets
+        while (!brackets.isEmpty())
+            appendSymbol(brackets.pop() == OPEN_BRACE ? CLOSE_BRACE : CLOSE_PAREN);
+    }
+
+    // Append a random number, returning true if it was drawn non-negative.
+    // A negative number is written as its absolute value times "( 0 - 1 )"; a non-negative draw is
+    // followed by a second draw, whose value (negative or not) is the number written.
+    private boolean appendNumber(RandomGenerator r)
+    {
+        long digit = r.nextLong(DIGIT_RANGE) - DIGIT_RANGE / 2;
+        if (digit < 0) {
+            append("( 0 - 1 ) * ").append(Math.abs(digit)).append(' ');
+            return false;
+        }
+        append(r.nextLong(DIGIT_RANGE) - DIGIT_RANGE / 2).append(' ');
+        return true;
+    }
+
+    private void appendSymbol(int symbol)
+    {
+        expression.append(TEXT[symbol]);
+        formatted.append(FORMATTED[symbol]);
+        if (symbol == OPEN_BRACE)
+            brackets.push(OPEN_BRACE);
+        else if (symbol == OPEN_PAREN || (symbol >= SIN && symbol <= LOG))
+            brackets.push(OPEN_PAREN);
+    }
+
+    // Text written the same way in both forms
+    private ExpressionGenerator append(String text)
+    {
+        expression.append(text);
+        formatted.append(text);
+        return this;
+    }
+
+    private ExpressionGenerator append(long number)
+    {
+        expression.append(number);
+        formatted.append(number);
+        return this;
+    }
+
+    private ExpressionGenerator append(char c)
+    {
+        expression.append(c);
+        formatted.append(c);
+        return this;
+    }
+}
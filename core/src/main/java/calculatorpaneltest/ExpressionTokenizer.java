@@ -0,0 +1,183 @@
+package calculatorpaneltest;
+
+// Single-pass scanner that splits an expression into int-coded tokens, replacing the
+// String.split("\\s") and OPS_PRECEDENCE lookups CalculatorPanelEval used to do per token.
+//
+// Tokens are runs of non-whitespace characters (whitespace as matched by the regex \s), so the
+// scanner accepts exactly the inputs the split-based code did. Number literals are parsed in place;
+// only literals with more precision than a double holds exactly fall back to Double.parseDouble().
+final class ExpressionTokenizer {
+
+    // Largest integer below which every long converts to a double exactly
+    private static final long MAX_EXACT_MANTISSA = 1L << 53;
+
+    // Powers of ten that are exactly representable as doubles
+    private static final double[] POWERS_OF_TEN = {
+            1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+            1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22};
+
+    private ExpressionTokenizer()
+    {}
+
+    // Scan expr into out, replacing its previous contents
+    static void tokenize(CharSequence expr, TokenBuffer out)
+    {
+        tokenize(expr, out, null);
+    }
+
+    // Scan expr into out; tokens matching one of the variable names become VARIABLE tokens whose
+    // value is the variable's index in variables
+    static void tokenize(CharSequence expr, TokenBuffer out, String[] variables)
+    {
+        out.clear(expr);
+        int length = expr.length();
+        int i = 0;
+
+        while (i < length) {
+            if (isWhitespace(expr.charAt(i))) {
+                i++;
+                continue;
+            }
+            int start = i;
+            while (i < length && !isWhitespace(expr.charAt(i)))
+                i++;
+            addToken(expr, start, i, out, variables);
+        }
+    }
+
+    private static void addToken(CharSequence expr, int start, int end, TokenBuffer out, String[] variables)
+    {
+        int code = classify(expr, start, end);
+        if (code != CalculatorPanelEval.NUMBER) {
+            out.add(code, 0.0, start, end);
+            return;
+        }
+        int variable = variableIndex(expr, start, end, variables);
+        if (variable >= 0)
+            out.add(CalculatorPanelEval.VARIABLE, variable, start, end);
+        else
+            addNumber(expr, start, end, out);
+    }
+
+    private static int variableIndex(CharSequence expr, int start, int end, String[] variables)
+    {
+        if (variables == null) return -1;
+        for (int v = 0; v < variables.length; v++) {
+            String name = variables[v];
+            if (name.length() != end - start) continue;
+            int i = 0;
+            while (i < name.length() && name.charAt(i) == expr.charAt(start + i)) i++;
+            if (i == name.length()) return v;
+        }
+        return -1;
+    }
+
+    // Whether name can be used as a variable: an identifier that is not an operator name
+    static boolean isValidVariableName(String name)
+    {
+        if (name.isEmpty() || !Character.isJavaIdentifierStart(name.charAt(0))) return false;
+        for (int i = 1; i < name.length(); i++)
+            if (!Character.isJavaIdentifierPart(name.charAt(i))) return false;
+        return classify(name, 0, name.length()) == CalculatorPanelEval.NUMBER
+                && !name.equals("NaN") && !name.equals("Infinity");
+    }
+
+    // Code of an operator or bracket token; any other token is a (possibly invalid) number
+    private static int classify(CharSequence expr, int start, int end)
+    {
+        int length = end - start;
+        char c = expr.charAt(start);
+        if (length == 1) {
+            switch (c) {
+                case '-': return CalculatorPanelEval.SUB;
+                case '+': return CalculatorPanelEval.ADD;
+                case '*': return CalculatorPanelEval.MUL;
+                case '/': return CalculatorPanelEval.DIV;
+                case '^': return CalculatorPanelEval.POW;
+                case '(': return CalculatorPanelEval.OPEN_PAREN;
+                case ')': return CalculatorPanelEval.CLOSE_PAREN;
+                case '{': return CalculatorPanelEval.OPEN_BRACE;
+                case '}': return CalculatorPanelEval.CLOSE_BRACE;
+                default: return CalculatorPanelEval.NUMBER;
+            }
+        }
+        if (length == 2 && c == 'l' && expr.charAt(start + 1) == 'n')
+            return CalculatorPanelEval.LN;
+        if (length == 3) {
+            char c1 = expr.charAt(start + 1), c2 = expr.charAt(start + 2);
+            if (c == 's' && c1 == 'i' && c2 == 'n') return CalculatorPanelEval.SIN;
+            if (c == 'c' && c1 == 'o' && c2 == 's') return CalculatorPanelEval.COS;
+            if (c == 't' && c1 == 'a' && c2 == 'n') return CalculatorPanelEval.TAN;
+            if (c == 'c' && c1 == 'o' && c2 == 't') return CalculatorPanelEval.COT;
+            if (c == 'l' && c1 == 'o' && c2 == 'g') return CalculatorPanelEval.LOG;
+        }
+        return CalculatorPanelEval.NUMBER;
+    }
+
+    // Parse a number literal the way Double.parseDouble() would, adding an INVALID token if it fails.
+    // Plain decimals ([+-]digits[.digits]) are handled without allocating.
+    private static void addNumber(CharSequence expr, int start, int end, TokenBuffer out)
+    {
+        int i = start;
+        boolean negative = false;
+        char c = expr.charAt(i);
+        if (c == '-' || c == '+') {
+            negative = c == '-';
+            i++;
+        }
+
+        long mantissa = 0;
+        int digits = 0, fractionDigits = 0;
+        boolean dot = false, exact = true;
+        for (; i < end; i++) {
+            c = expr.charAt(i);
+            if (c >= '0' && c <= '9') {
+                digits++;
+                if (dot) fractionDigits++;
+                if (mantissa < MAX_EXACT_MANTISSA) mantissa = mantissa * 10 + (c - '0');
+                else exact = false;
+            }
+            else if (c == '.' && !dot) {
+                dot = true;
+            }
+            else if (c == '.' || c == '-' || c == '+') {
+                // A second '.' or sign can never be part of a valid literal
+                out.add(CalculatorPanelEval.INVALID, 0.0, start, end);
+                return;
+            }
+            else {
+                // Exponents, hex literals, "Infinity", ...
+                addParsed(expr, start, end, out);
+                return;
+            }
+        }
+        if (digits == 0) {
+            out.add(CalculatorPanelEval.INVALID, 0.0, start, end);
+            return;
+        }
+
+        // A mantissa and power of ten that are both exact give a correctly rounded quotient
+        if (exact && mantissa <= MAX_EXACT_MANTISSA && fractionDigits < POWERS_OF_TEN.length) {
+            double value = mantissa / POWERS_OF_TEN[fractionDigits];
+            out.add(CalculatorPanelEval.NUMBER, negative ? -value : value, start, end);
+        }
+        else {
+            addParsed(expr, start, end, out);
+        }
+    }
+
+    private static void addParsed(CharSequence expr, int start, int end, TokenBuffer out)
+    {
+        try {
+            out.add(CalculatorPanelEval.NUMBER, Double.parseDouble(expr.subSequence(start, end).toString()), start, end);
+        } catch (NumberFormatException e) {
+            out.add(CalculatorPanelEval.INVALID, 0.0, start, end);
+        }
+    }
+
+    // Whitespace characters matched by the regex \s
+    static boolean isWhitespace(char c)
+    {
+        return c == ' ' || c == '\t' || c == '\n' || c == '\u000B' || c == '\f' || c == '\r';
+    }
+}
@@ -0,0 +1,92 @@
+package calculatorpaneltest;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.SplittableRandom;
+
+// Writes machine-generated expressions of any number of tokens (millions or more) to a Writer, for
+// StreamingEvaluator, without building them in memory.
+//
+// The expression is a sum of generated test cases ("part + part - part ..."), some of them grouped
+// in brackets or inside sin/cos, nested at most maxDepth levels deep. Only cases the calculator
+// evaluates successfully to a value within +/- PART_LIMIT are used, so that the whole expression
+// evaluates successfully too, however long it is.
+final class GiantExpressionWriter {
+
+    static final int DEFAULT_MAX_DEPTH = 64;
+
+    private static final double PART_LIMIT = 1e6;
+    private static final String[] OPENINGS = {"( ", "{ ", "sin ( ", "cos ( "};
+
+    private final long seed;
+    private final int maxDepth;
+    private final SplittableRandom shape;
+    private final CaseRandom random = new CaseRandom(0, 0);
+    private final ExpressionGenerator generator = new ExpressionGenerator();
+    private final CalculatorPanelEval calcEval = new CalculatorPanelEval();
+    private final EvalResult result = new EvalResult();
+    private final TokenBuffer tokens = new TokenBuffer();
+
+    // Kinds of the open brackets: true for braces
+    private final boolean[] braces;
+    private long index;
+
+    GiantExpressionWriter(long seed, int maxDepth)
+    {
+        this.seed = seed;
+        this.maxDepth = maxDepth;
+        this.shape = new SplittableRandom(seed);
+        this.braces = new boolean[maxDepth];
+    }
+
+    // WRITE AN EXPRESSION OF AT LEAST minTokens TOKENS, RETURNING ITS NUMBER OF TOKENS
+    long write(Writer out, long minTokens) throws IOException
+    {
+        long written = 0;
+        int depth = 0;
+        boolean first = true;
+        while (written < minTokens) {
+            if (!first) {
+                out.write(shape.nextBoolean() ? "+ " : "- ");
+                written++;
+            }
+            first = false;
+
+            // Open brackets before the part, close some after it
+            while (depth < maxDepth && shape.nextInt(4) == 0) {
+                int opening = shape.nextInt(OPENINGS.length);
+                out.write(OPENINGS[opening]);
+                braces[depth++] = opening == 1;
+                written += opening < 2 ? 1 : 2;
+            }
+            written += writePart(out);
+            while (depth > 0 && shape.nextInt(4) == 0) {
+                out.write(braces[--depth] ? "} " : ") ");
+                written++;
+            }
+        }
+
+        // Close the brackets still open
+        while (depth > 0) {
+            out.write(braces[--depth] ? "} " : ") ");
+            written++;
+        }
+        return written;
+    }
+
+    // Write the next generated case the calculator evaluates within +/- PART_LIMIT, returning its tokens
+    private long writePart(Writer out) throws IOException
+    {
+        while (true) {
+            random.reset(seed, index++);
+            generator.generateExpression(random);
+            String part = generator.formatted.toString();
+            if (!calcEval.tryEvaluate(part, result) || !(Math.abs(result.value()) <= PART_LIMIT))
+                continue;
+
+            ExpressionTokenizer.tokenize(part, tokens);
+            out.write(part);
+            return tokens.size;
+        }
+    }
+}
@@ -0,0 +1,301 @@
+package calculatorpaneltest;
+
+// Evaluator for an expression typed token by token, as in the CalculatorPanel input field: instead of
+// evaluating the whole expression again on every keystroke, it keeps the shunting-yard operator stack
+// of infixToRPN() and the partial operand stack of evalRPN(), applying each new token's instructions
+// as they are produced (as StreamingEvaluator does for a Reader).
+//
+// Every appended token records what it changed in an undo journal (stack sizes, the operators and
+// operands it consumed, the error state), so backspace() and restore() undo tokens without re-parsing.
+// Appending and undoing cost amortized O(1) per token. result() applies the operators still pending,
+// then undoes them: there is at most one per precedence level, except for a chain of right-associative
+// '^', which is applied in full as its value depends on the last operand. Previewing "2 ^ 3 ^ ... ^ x"
+// therefore costs the length of the chain, and typing it out costs its square.
+//
+// result() gives what CalculatorPanelEval.tryEvaluate() would for the tokens appended so far, errors
+// and token positions included. Not synchronized: each input field keeps its own instance.
+final class IncrementalEvaluator {
+
+    // Journal record of a token: operator stack size it kept, operators it popped, operand stack size
+    // before it, lowest operand stack size it reached, and the error state before it
+    private static final int KEPT = 0, POPPED = 1, OPERANDS = 2, LOW = 3, ERROR = 4, ERROR_POSITION = 5,
+            MISMATCH = 6, RECORD = 7;
+
+    private static final EvalError[] ERRORS = EvalError.values();
+
+    private final TokenBuffer scanned = new TokenBuffer();
+
+    // Operator stack of the shunting-yard algorithm (codes and token positions), and operand stack
+    private final IntStack operators = new IntStack();
+    private final IntStack operatorPositions = new IntStack();
+    // For each operator stack entry, the index of the nearest bracket at or below it (-1 if none)
+    private final IntStack brackets = new IntStack();
+    private final DoubleStack operands = new DoubleStack();
+
+    // Undo journal: one record per token, then the operators (code, position) and operands the
+    // tokens consumed, in the order they were consumed
+    private final IntStack journal = new IntStack(RECORD * 16);
+    private final IntStack savedOperators = new IntStack();
+    private final DoubleStack savedOperands = new DoubleStack();
+
+    private int tokens;
+    // Lowest operand stack size reached by the token being applied: operands below it are not yet saved
+    private int low;
+
+    // First evaluation error (NONE if there is none)
+    private EvalError error = EvalError.NONE;
+    private int errorPosition;
+    // Position of a mismatched closing bracket, or -1: later tokens are ignored, as by infixToRPN()
+    private int mismatch = -1;
+
+    // APPEND THE TOKENS OF text (e.g. "sin", "( 2" or "3.5") TO THE EXPRESSION
+    void append(CharSequence text)
+    {
+        ExpressionTokenizer.tokenize(text, scanned);
+        for (int i = 0; i < scanned.size; i++) {
+            begin();
+            addToken(scanned.code[i], scanned.value[i], tokens++);
+        }
+    }
+
+    // REMOVE THE LAST TOKEN OF THE EXPRESSION (IF ANY)
+    void backspace()
+    {
+        if (tokens == 0) return;
+        undo();
+        tokens--;
+    }
+
+    // Mark the current expression, to come back to it with restore()
+    int snapshot()
+    {
+        return tokens;
+    }
+
+    // Undo the tokens appended since snapshot was taken (the tokens before it must not have been removed since)
+    void restore(int snapshot)
+    {
+        while (tokens > snapshot)
+            backspace();
+    }
+
+    // Number of tokens of the expression
+    int size()
+    {
+        return tokens;
+    }
+
+    void clear()
+    {
+        operators.clear();
+        operatorPositions.clear();
+        brackets.clear();
+        operands.clear();
+        journal.clear();
+        savedOperators.clear();
+        savedOperands.clear();
+        tokens = 0;
+        error = EvalError.NONE;
+        mismatch = -1;
+    }
+
+    // PREVIEW: STORE THE VALUE OR ERROR OF THE EXPRESSION SO FAR INTO result
+    // Returns true if the expression evaluates successfully.
+    boolean result(EvalResult result)
+    {
+        if (mismatch >= 0) return result.fail(EvalError.MISMATCHED_PARENTHESIS, mismatch);
+        // An open bracket left on the operator stack is unmatched
+        if (!brackets.isEmpty() && brackets.peek() >= 0)
+            return result.fail(EvalError.MISMATCHED_PARENTHESIS, operatorPositions.get(brackets.peek()));
+        // After an error, the pending operators would be ignored
+        if (error != EvalError.NONE) return result.fail(error, errorPosition);
+
+        // Apply the pending operators, read the result, then undo them
+        begin();
+        while (!operators.isEmpty())
+            applyOperator();
+        boolean evaluated = finish(result);
+        undo();
+        return evaluated;
+    }
+
+    private boolean finish(EvalResult result)
+    {
+        if (error != EvalError.NONE) return result.fail(error, errorPosition);
+        // An empty expression is reported as an invalid token
+        if (operands.isEmpty()) return result.fail(EvalError.INVALID_TOKEN, -1);
+        if (operands.size() > 1) return result.fail(EvalError.TOO_MANY_OPERANDS, -1);
+
+        double value = operands.peek();
+        // Check for double overflow
+        if (value == Double.POSITIVE_INFINITY || value == Double.NEGATIVE_INFINITY)
+            return result.fail(EvalError.OVERFLOW, -1);
+        result.succeed(value);
+        return true;
+    }
+
+    // SHUNTING-YARD STEP FOR A TOKEN (SEE CalculatorPanelEval.infixToRPN())
+    private void addToken(int code, double value, int position)
+    {
+        if (mismatch >= 0) return;
+
+        if (code >= 0) {
+            // Apply operators of higher precedence ('^' is right associative)
+            while (!operators.isEmpty()) {
+                int top = operators.peek();
+                if (top >= 0 && (top / 2 > code / 2 || (top / 2 == code / 2 && code != CalculatorPanelEval.POW)))
+                    applyOperator();
+                else
+                    break;
+            }
+            pushOperator(code, position);
+        }
+        else if (code == CalculatorPanelEval.OPEN_PAREN || code == CalculatorPanelEval.OPEN_BRACE) {
+            pushOperator(code, position);
+        }
+        else if (code == CalculatorPanelEval.CLOSE_PAREN || code == CalculatorPanelEval.CLOSE_BRACE) {
+            // Until the matching bracket is on the stack, apply operators
+            while (!operators.isEmpty() && operators.peek() >= 0)
+                applyOperator();
+            if (operators.isEmpty() || operators.peek() != code + 1) {
+                mismatch = position;
+                return;
+            }
+            popOperator();
+        }
+        else {
+            apply(code, value, position);
+        }
+    }
+
+    private void pushOperator(int code, int position)
+    {
+        brackets.push(code < 0 ? operators.size() : brackets.isEmpty() ? -1 : brackets.peek());
+        operators.push(code);
+        operatorPositions.push(position);
+    }
+
+    private void applyOperator()
+    {
+        int position = operatorPositions.peek();
+        apply(popOperator(), 0.0, position);
+    }
+
+    // EVALUATION STEP FOR AN INSTRUCTION OF THE POSTFIX PROGRAM (SEE CalculatorPanelEval.evalRPN())
+    // After the first error, instructions are ignored.
+    private void apply(int code, double value, int position)
+    {
+        if (error != EvalError.NONE) return;
+
+        if (code == CalculatorPanelEval.NUMBER) {
+            operands.push(value);
+        }
+        else if (code >= CalculatorPanelEval.SUB && code <= CalculatorPanelEval.POW) {
+            if (operands.size() < 2) {
+                fail(EvalError.MISSING_OPERAND, position);
+                return;
+            }
+            double b = popOperand();
+            if (code == CalculatorPanelEval.DIV && b == 0.0) {
+                fail(EvalError.DIVISION_BY_ZERO, position);
+                return;
+            }
+            double a = popOperand();
+            operands.push(RpnOptimizer.applyBinary(code, a, b));
+        }
+        else if (code >= CalculatorPanelEval.SIN) {
+            if (operands.isEmpty()) {
+                fail(EvalError.MISSING_FUNCTION_ARGUMENT, position);
+                return;
+            }
+            double x = operands.peek();
+            if (code == CalculatorPanelEval.COT && x == 0.0)
+                fail(EvalError.COT_OF_ZERO, position);
+            else if (code == CalculatorPanelEval.LN && x <= 0.0)
+                fail(EvalError.LN_DOMAIN, position);
+            else if (code == CalculatorPanelEval.LOG && x <= 0.0)
+                fail(EvalError.LOG_DOMAIN, position);
+            else
+                operands.push(RpnOptimizer.applyFunction(code, popOperand()));
+        }
+        else {
+            fail(EvalError.INVALID_TOKEN, position);
+        }
+    }
+
+    private void fail(EvalError evalError, int position)
+    {
+        error = evalError;
+        errorPosition = position;
+    }
+
+    // UNDO JOURNAL
+
+    // Start the journal record of a token
+    private void begin()
+    {
+        journal.push(operators.size());
+        journal.push(0);
+        journal.push(operands.size());
+        journal.push(operands.size());
+        journal.push(error.ordinal());
+        journal.push(errorPosition);
+        journal.push(mismatch);
+        low = operands.size();
+    }
+
+    // Pop an operator, saving it for undo (operators are never popped by the token that pushed them)
+    private int popOperator()
+    {
+        int record = journal.size() - RECORD;
+        journal.set(record + KEPT, operators.size() - 1);
+        journal.set(record + POPPED, journal.get(record + POPPED) + 1);
+        int code = operators.pop();
+        brackets.pop();
+        savedOperators.push(code);
+        savedOperators.push(operatorPositions.pop());
+        return code;
+    }
+
+    // Pop an operand, saving it for undo unless the current token pushed it
+    private double popOperand()
+    {
+        double operand = operands.pop();
+        if (operands.size() < low) {
+            low = operands.size();
+            journal.set(journal.size() - RECORD + LOW, low);
+            savedOperands.push(operand);
+        }
+        return operand;
+    }
+
+    // Undo the token of the last journal record
+    private void undo()
+    {
+        int record = journal.size() - RECORD;
+        int kept = journal.get(record + KEPT);
+        int lowest = journal.get(record + LOW);
+        int size = journal.get(record + OPERANDS);
+
+        while (operators.size() > kept) {
+            operators.pop();
+            operatorPositions.pop();
+            brackets.pop();
+        }
+        for (int i = journal.get(record + POPPED); i > 0; i--) {
+            int position = savedOperators.pop();
+            pushOperator(savedOperators.pop(), position);
+        }
+
+        while (operands.size() > lowest)
+            operands.pop();
+        while (operands.size() < size)
+            operands.push(savedOperands.pop());
+
+        error = ERRORS[journal.get(record + ERROR)];
+        errorPosition = journal.get(record + ERROR_POSITION);
+        mismatch = journal.get(record + MISMATCH);
+        while (journal.size() > record)
+            journal.pop();
+    }
+}
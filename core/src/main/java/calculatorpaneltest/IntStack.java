@@ -0,0 +1,65 @@
+package calculatorpaneltest;
+
+import java.util.Arrays;
+
+// Growable stack of primitive ints, used in place of java.util.Stack<Integer> so that the
+// shunting-yard operator stack neither boxes nor locks. Not synchronized: each evaluator (or thread)
+// keeps its own instance and reuses it across evaluations.
+
+final class IntStack {
+
+    private int[] items;
+    private int size;
+
+    IntStack()
+    {
+        this(16);
+    }
+
+    IntStack(int capacity)
+    {
+        items = new int[Math.max(capacity, 1)];
+    }
+
+    void push(int value)
+    {
+        if (size == items.length) items = Arrays.copyOf(items, size * 2);
+        items[size++] = value;
+    }
+
+    int pop()
+    {
+        return items[--size];
+    }
+
+    int peek()
+    {
+        return items[size - 1];
+    }
+
+    // Item i from the bottom of the stack
+    int get(int i)
+    {
+        return items[i];
+    }
+
+    void set(int i, int value)
+    {
+        items[i] = value;
+    }
+
+    int size()
+    {
+        return size;
+    }
+
+    boolean isEmpty()
+    {
+        return size == 0;
+    }
+
+    void clear()
+    {
+        size = 0;
+    }
+}
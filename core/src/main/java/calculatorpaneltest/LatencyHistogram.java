@@ -0,0 +1,87 @@
+package calculatorpaneltest;
+
+// Histogram of durations in nanoseconds with log-linear buckets: 16 buckets per power of two, so any
+// recorded value is reported within 6.25% (values below 16 ns exactly), from 0 to Long.MAX_VALUE.
+//
+// A histogram has a single writer and no locks: each thread records into its own (see PhaseMetrics),
+// and histograms are merged once their threads are done.
+final class LatencyHistogram {
+
+    private static final int SUB_BITS = 4;
+    private static final int SUB_BUCKETS = 1 << SUB_BITS;
+    private static final int BUCKETS = (64 - SUB_BITS) * SUB_BUCKETS;
+
+    private final long[] counts = new long[BUCKETS];
+    private long count;
+    private long sum;
+    private long max;
+
+    void record(long nanos)
+    {
+        if (nanos < 0) nanos = 0;
+        counts[bucket(nanos)]++;
+        count++;
+        sum += nanos;
+        if (nanos > max) max = nanos;
+    }
+
+    // Add the values of another histogram to this one
+    void merge(LatencyHistogram other)
+    {
+        for (int i = 0; i < BUCKETS; i++)
+            counts[i] += other.counts[i];
+        count += other.count;
+        sum += other.sum;
+        max = Math.max(max, other.max);
+    }
+
+    long count()
+    {
+        return count;
+    }
+
+    long max()
+    {
+        return max;
+    }
+
+    double mean()
+    {
+        return count == 0 ? 0 : (double) sum / count;
+    }
+
+    long total()
+    {
+        return sum;
+    }
+
+    // Value below which the fraction q of the recorded values fall (upper bound of its bucket, at most max)
+    long percentile(double q)
+    {
+        if (count == 0) return 0;
+        long rank = Math.max(1, (long) Math.ceil(q * count));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts[i];
+            if (seen >= rank) return Math.min(highestValue(i), max);
+        }
+        return max;
+    }
+
+    private static int bucket(long value)
+    {
+        if (value < SUB_BUCKETS) return (int) value;
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        int shift = exponent - SUB_BITS;
+        return ((shift + 1) << SUB_BITS) + (int) ((value >>> shift) & (SUB_BUCKETS - 1));
+    }
+
+    // Largest value of bucket i
+    private static long highestValue(int i)
+    {
+        if (i < SUB_BUCKETS) return i;
+        int shift = (i >> SUB_BITS) - 1;
+        long lowest = (long) (SUB_BUCKETS + (i & (SUB_BUCKETS - 1))) << shift;
+        return lowest + (1L << shift) - 1;
+    }
+}
@@ -0,0 +1,261 @@
+package calculatorpaneltest;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+// Shrinks an expression on which the calculator and the oracle disagree to a minimal expression
+// that still mismatches, delta-debugging style (ddmin):
+//   - the tokens are split into n chunks; keeping only one chunk, or removing one, is tried, and the
+//     first candidate that still mismatches replaces the expression; otherwise n is doubled,
+//     until the chunks are single tokens,
+//   - brackets are removed in pairs (the pairing ExpressionGenerator tracks on its bracket stack), so
+//     candidates stay balanced and "( ... )" can be stripped down to its contents,
+//   - then number literals are simplified (to 1, 2 or half their digits) while the mismatch remains,
+//     and tokens removed again, until neither step changes anything: the result is 1-minimal.
+// All the candidates of a step are evaluated in parallel; the first one in order that mismatches is
+// taken, so the result does not depend on the number of threads.
+//
+// Usage: java calculatorpaneltest.MismatchMinimizer [--threads <n>] <expression>
+final class MismatchMinimizer implements AutoCloseable {
+
+    // Mismatch corpus written by CalculatorPanelTestClient --minimize
+    static final String CORPUS_FILE = "mismatch_corpus.txt";
+
+    private final ExecutorService pool;
+
+    // Evaluators of each pool thread
+    private final ThreadLocal<Checker> checkers = ThreadLocal.withInitial(Checker::new);
+
+    MismatchMinimizer(int threads)
+    {
+        pool = Executors.newFixedThreadPool(threads, r -> {
+            Thread thread = new Thread(r, "mismatch-minimizer");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    // Minimal form of a mismatching expression (the expression itself if it does not mismatch)
+    String minimize(String expression)
+    {
+        List<String> tokens = new ArrayList<>(Arrays.asList(expression.trim().split("\\s+")));
+        if (firstMismatch(List.of(tokens)) < 0) return expression;
+
+        tokens = removeTokens(tokens);
+        // A simpler number can make tokens removable that were not before
+        for (List<String> simpler; !(simpler = simplifyNumbers(tokens)).equals(tokens); )
+            tokens = removeTokens(simpler);
+        return String.join(" ", tokens);
+    }
+
+    // DDMIN OVER THE TOKENS, REMOVING BRACKETS IN PAIRS
+    private List<String> removeTokens(List<String> tokens)
+    {
+        int n = 2;
+        while (tokens.size() >= 2) {
+            int size = tokens.size();
+            int[] partner = partners(tokens);
+
+            // Subsets (one chunk kept) first, then complements (one chunk removed)
+            List<List<String>> candidates = new ArrayList<>();
+            for (int complement = 0; complement < 2; complement++) {
+                for (int c = 0; c < n; c++) {
+                    List<String> candidate = keep(tokens, partner, c * size / n, (c + 1) * size / n, complement == 0);
+                    candidates.add(candidate.isEmpty() || candidate.size() == size ? null : candidate);
+                }
+            }
+
+            int found = firstMismatch(candidates);
+            if (found >= 0) {
+                tokens = candidates.get(found);
+                n = found < n ? 2 : Math.max(n - 1, 2);
+            }
+            else if (n < size) {
+                n = Math.min(2 * n, size);
+            }
+            else {
+                break;
+            }
+        }
+        return tokens;
+    }
+
+    // Tokens inside [from, to) (or outside it), dropping both brackets of a pair if either is dropped
+    private static List<String> keep(List<String> tokens, int[] partner, int from, int to, boolean inside)
+    {
+        boolean[] kept = new boolean[tokens.size()];
+        for (int i = 0; i < kept.length; i++)
+            kept[i] = (i >= from && i < to) == inside;
+        for (int i = 0; i < kept.length; i++)
+            if (partner[i] >= 0 && kept[i] != kept[partner[i]])
+                kept[i] = kept[partner[i]] = false;
+
+        List<String> result = new ArrayList<>();
+        for (int i = 0; i < kept.length; i++)
+            if (kept[i]) result.add(tokens.get(i));
+        return result;
+    }
+
+    // Index of the bracket matching each bracket token (by position, whatever its kind), or -1
+    private static int[] partners(List<String> tokens)
+    {
+        int[] partner = new int[tokens.size()];
+        Arrays.fill(partner, -1);
+        IntStack open = new IntStack();
+        for (int i = 0; i < tokens.size(); i++) {
+            String token = tokens.get(i);
+            if (token.equals("(") || token.equals("{")) {
+                open.push(i);
+            }
+            else if ((token.equals(")") || token.equals("}")) && !open.isEmpty()) {
+                int j = open.pop();
+                partner[i] = j;
+                partner[j] = i;
+            }
+        }
+        return partner;
+    }
+
+    // REPLACE NUMBER LITERALS WITH SIMPLER ONES WHILE THE EXPRESSION STILL MISMATCHES
+    private List<String> simplifyNumbers(List<String> tokens)
+    {
+        while (true) {
+            List<List<String>> candidates = new ArrayList<>();
+            for (int i = 0; i < tokens.size(); i++) {
+                String token = tokens.get(i);
+                if (!isNumber(token)) continue;
+                if (token.equals("1") || token.equals("2")) continue;
+                candidates.add(replace(tokens, i, "1"));
+                candidates.add(replace(tokens, i, "2"));
+                if (token.length() > 2) candidates.add(replace(tokens, i, token.substring(0, token.length() / 2)));
+            }
+
+            int found = firstMismatch(candidates);
+            if (found < 0) return tokens;
+            tokens = candidates.get(found);
+        }
+    }
+
+    private static boolean isNumber(String token)
+    {
+        return token.matches("-?[0-9]*\\.?[0-9]+");
+    }
+
+    private static List<String> replace(List<String> tokens, int i, String token)
+    {
+        List<String> result = new ArrayList<>(tokens);
+        result.set(i, token);
+        return result;
+    }
+
+    // EVALUATE CANDIDATES IN PARALLEL, RETURNING THE INDEX OF THE FIRST THAT MISMATCHES (OR -1)
+    // null candidates are skipped.
+    private int firstMismatch(List<List<String>> candidates)
+    {
+        List<Future<Boolean>> results = new ArrayList<>();
+        for (List<String> candidate : candidates) {
+            if (candidate == null) {
+                results.add(null);
+                continue;
+            }
+            String expression = String.join(" ", candidate);
+            results.add(pool.submit(() -> checkers.get().mismatches(expression)));
+        }
+
+        int found = -1;
+        try {
+            for (int i = 0; i < results.size() && found < 0; i++)
+                if (results.get(i) != null && results.get(i).get()) found = i;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while minimizing", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Evaluating a candidate failed", e.getCause());
+        } finally {
+            for (Future<Boolean> result : results)
+                if (result != null) result.cancel(false);
+        }
+        return found;
+    }
+
+    @Override
+    public void close()
+    {
+        pool.shutdownNow();
+    }
+
+    // Both evaluators, as TestWorker.runExpression() compares them
+    private static final class Checker {
+        private final TokenizedOracle oracle = new TokenizedOracle();
+        private final CalculatorPanelEval calcEval = new CalculatorPanelEval();
+        private final EvalResult result = new EvalResult();
+        private final TokenBuffer tokens = new TokenBuffer();
+
+        boolean mismatches(String expression)
+        {
+            ExpressionTokenizer.tokenize(TestWorker.format(expression), tokens);
+            double r1;
+            try {
+                r1 = oracle.evaluate(tokens);
+            } catch (IllegalArgumentException e) {
+                return false;
+            }
+            return calcEval.tryEvaluate(tokens, result) && r1 != result.value();
+        }
+    }
+
+    // APPEND MINIMIZED EXPRESSIONS TO THE MISMATCH CORPUS, SKIPPING THOSE IT ALREADY HOLDS
+    // Each line is "<minimized expression>\t# <origin>"; origins are given by the minimized map.
+    // Returns the number of expressions added.
+    static int addToCorpus(Path file, Map<String, String> minimized) throws IOException
+    {
+        Set<String> known = new HashSet<>();
+        if (Files.exists(file))
+            for (String line : Files.readAllLines(file, StandardCharsets.UTF_8))
+                known.add(line.split("\t", 2)[0]);
+
+        List<String> lines = new ArrayList<>();
+        for (Map.Entry<String, String> entry : minimized.entrySet())
+            if (known.add(entry.getKey()))
+                lines.add(entry.getKey() + "\t# " + entry.getValue());
+        Files.write(file, lines, StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        return lines.size();
+    }
+
+    public static void main(String[] args)
+    {
+        int threads = Runtime.getRuntime().availableProcessors();
+        int first = 0;
+        if (args.length > 1 && args[0].equals("--threads")) {
+            threads = Integer.parseInt(args[1]);
+            first = 2;
+        }
+        if (first >= args.length) {
+            System.out.println("Usage: java calculatorpaneltest.MismatchMinimizer [--threads <n>] "
+                    + "<expression>");
+            return;
+        }
+
+        String expression = String.join(" ", Arrays.asList(args).subList(first, args.length));
+        try (MismatchMinimizer minimizer = new MismatchMinimizer(threads)) {
+            String minimized = minimizer.minimize(expression);
+            if (minimized.equals(expression))
+                System.out.println("The expression does not mismatch (or cannot be reduced)");
+            else
+                System.out.println(minimized);
+        }
+    }
+}
@@ -0,0 +1,423 @@
+package calculatorpaneltest;
+
+// Oracle evaluator: https://github.com/fathzer/javaluator
+import com.fathzer.soft.javaluator.*;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URISyntaxException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.CodeSource;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+// Persistent store of the oracle's answers (a value or an error message) keyed on the expression
+// the oracle evaluated, so that reruns over the same corpus only evaluate the calculator:
+// TestWorker looks the oracle's answer up here first, and evaluates with DoubleEvaluator (then
+// appends) only on a miss.
+// One corpus can be shared by all the worker threads of a run.
+//
+// A corpus is two memory-mapped files:
+//   <file>      records, appended in SEGMENT-sized mappings (a record never spans two of them):
+//                 header:  int DATA_MAGIC, int VERSION, long oracle tag
+//                 record:  byte RECORD, int length, length bytes of UTF-8 expression,
+//                          byte hasError, double value,
+//                          [int length, length bytes of UTF-8 message]
+//                 byte PADDING skips to the next segment, byte END (0) ends the records
+//   <file>.idx  open-addressing hash table (linear probing) of the records, at most half full:
+//                 header:  int INDEX_MAGIC, int VERSION, int capacity, int count,
+//                          long end of the records
+//                 slot:    long hash of the expression (0 if empty), long offset of its record
+// The records are the reference: a missing or inconsistent index (after a crash, say) is rebuilt
+// from them.
+//
+// The oracle tag is a checksum of the oracle's bytecode (the Javaluator jar and TokenizedOracle). A
+// corpus written by another version of the oracle is discarded when it is opened, so that it never
+// answers for an oracle that could answer differently.
+final class OracleCorpus implements AutoCloseable {
+
+    static final int DATA_MAGIC = 0x43504F43;       // "CPOC"
+    static final int INDEX_MAGIC = 0x43504F49;      // "CPOI"
+    static final int VERSION = 1;
+
+    // Record markers
+    private static final byte END = 0, RECORD = 1, PADDING = 2;
+
+    private static final int SEGMENT = 1 << 26;
+    private static final int DATA_HEADER = 16;
+    private static final int INDEX_HEADER = 24;
+    private static final int SLOT = 16;
+    private static final int MIN_CAPACITY = 1 << 12;
+    // Keeps the index within a single mapping
+    private static final int MAX_CAPACITY = 1 << 26;
+
+    private final FileChannel data;
+    private final FileChannel index;
+    private final List<MappedByteBuffer> segments = new ArrayList<>();
+    private MappedByteBuffer table;
+    private int capacity;
+    private int count;
+    private long dataEnd;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    // Whether a corpus of another oracle version was discarded when opening
+    final boolean discarded;
+
+    // Answer of the oracle on one expression
+    static final class Answer {
+        double value;
+        // Message of the oracle's exception, or null if it evaluated the expression
+        String error;
+    }
+
+    // Open (or create) the corpus in file and file.idx
+    OracleCorpus(Path file) throws IOException
+    {
+        long tag = oracleTag();
+        data = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        index = FileChannel.open(Path.of(file + ".idx"), StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+
+        boolean valid = data.size() >= DATA_HEADER && segment(0).getInt(0) == DATA_MAGIC
+                && segment(0).getInt(4) == VERSION && segment(0).getLong(8) == tag;
+        discarded = !valid && data.size() > 0;
+        if (!valid) {
+            // New corpus, or one of another format or oracle version
+            segments.clear();
+            data.truncate(0);
+            index.truncate(0);
+            segment(0).putInt(0, DATA_MAGIC).putInt(4, VERSION).putLong(8, tag).put(DATA_HEADER, END);
+        }
+
+        if (!loadIndex()) rebuildIndex();
+    }
+
+    // LOOK UP THE ORACLE'S ANSWER ON AN EXPRESSION, RETURNING FALSE IF THE CORPUS DOES NOT HOLD IT
+    boolean lookup(String expression, Answer answer)
+    {
+        byte[] key = expression.getBytes(StandardCharsets.UTF_8);
+        long hash = hash(key);
+        lock.readLock().lock();
+        try {
+            long offset = find(key, hash);
+            if (offset < 0) {
+                misses.increment();
+                return false;
+            }
+            readAnswer(offset + 5 + key.length, answer);
+            hits.increment();
+            return true;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // APPEND THE ORACLE'S ANSWER ON AN EXPRESSION (IGNORED IF THE CORPUS ALREADY HOLDS IT OR IS FULL)
+    void add(String expression, double value, String error)
+    {
+        byte[] key = expression.getBytes(StandardCharsets.UTF_8);
+        byte[] message = error == null ? null : error.getBytes(StandardCharsets.UTF_8);
+        int size = 1 + 4 + key.length + 1 + 8 + (message == null ? 0 : 4 + message.length);
+        if (key.length == 0 || size + 1 > SEGMENT - DATA_HEADER) return;
+
+        long hash = hash(key);
+        lock.writeLock().lock();
+        try {
+            if (find(key, hash) >= 0) return;
+            if (count + 1 > capacity / 2) {
+                if (capacity == MAX_CAPACITY) return;
+                resize(capacity * 2);
+            }
+
+            // Skip to the next segment if the record and the END marker after it do not fit
+            if (dataEnd % SEGMENT + size + 1 > SEGMENT) {
+                segment((int) (dataEnd / SEGMENT)).put((int) (dataEnd % SEGMENT), PADDING);
+                dataEnd = (dataEnd / SEGMENT + 1) * SEGMENT;
+            }
+            long offset = dataEnd;
+            MappedByteBuffer segment = segment((int) (offset / SEGMENT));
+            int p = (int) (offset % SEGMENT);
+            segment.put(p + size, END);
+            segment.putInt(p + 1, key.length).put(p + 5, key).put(p + 5 + key.length, (byte) (message != null ? 1 : 0))
+                    .putDouble(p + 6 + key.length, value);
+            if (message != null)
+                segment.putInt(p + 14 + key.length, message.length).put(p + 18 + key.length, message);
+            segment.put(p, RECORD);
+
+            insert(hash, offset);
+            dataEnd = offset + size;
+            table.putInt(12, count).putLong(16, dataEnd);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Offset of the record of key, or -1
+    private long find(byte[] key, long hash)
+    {
+        int mask = capacity - 1;
+        for (int slot = (int) hash & mask; ; slot = (slot + 1) & mask) {
+            long slotHash = table.getLong(INDEX_HEADER + slot * SLOT);
+            if (slotHash == 0) return -1;
+            if (slotHash == hash) {
+                long offset = table.getLong(INDEX_HEADER + slot * SLOT + 8);
+                if (keyEquals(offset, key)) return offset;
+            }
+        }
+    }
+
+    private boolean keyEquals(long offset, byte[] key)
+    {
+        MappedByteBuffer segment = segments.get((int) (offset / SEGMENT));
+        int p = (int) (offset % SEGMENT);
+        if (segment.getInt(p + 1) != key.length) return false;
+        for (int i = 0; i < key.length; i++)
+            if (segment.get(p + 5 + i) != key[i]) return false;
+        return true;
+    }
+
+    // Read the answer that follows the expression of a record, at offset
+    private void readAnswer(long offset, Answer answer)
+    {
+        MappedByteBuffer segment = segments.get((int) (offset / SEGMENT));
+        int p = (int) (offset % SEGMENT);
+        answer.value = segment.getDouble(p + 1);
+        if (segment.get(p) == 0) {
+            answer.error = null;
+        }
+        else {
+            byte[] message = new byte[segment.getInt(p + 9)];
+            segment.get(p + 13, message);
+            answer.error = new String(message, StandardCharsets.UTF_8);
+        }
+    }
+
+    private void insert(long hash, long offset)
+    {
+        int mask = capacity - 1;
+        int slot = (int) hash & mask;
+        while (table.getLong(INDEX_HEADER + slot * SLOT) != 0)
+            slot = (slot + 1) & mask;
+        table.putLong(INDEX_HEADER + slot * SLOT, hash).putLong(INDEX_HEADER + slot * SLOT + 8, offset);
+        count++;
+    }
+
+    // MAP THE INDEX FILE, RETURNING FALSE IF IT DOES NOT MATCH THE RECORDS
+    private boolean loadIndex() throws IOException
+    {
+        if (index.size() < INDEX_HEADER) return false;
+        MappedByteBuffer header = index.map(FileChannel.MapMode.READ_ONLY, 0, INDEX_HEADER);
+        int savedCapacity = header.getInt(8);
+        long savedEnd = header.getLong(16);
+        if (header.getInt(0) != INDEX_MAGIC || header.getInt(4) != VERSION
+                || Integer.bitCount(savedCapacity) != 1 || savedCapacity < MIN_CAPACITY || savedCapacity > MAX_CAPACITY
+                || index.size() != INDEX_HEADER + (long) savedCapacity * SLOT
+                || savedEnd < DATA_HEADER || savedEnd >= data.size()
+                || segment((int) (savedEnd / SEGMENT)).get((int) (savedEnd % SEGMENT)) != END)
+            return false;
+
+        capacity = savedCapacity;
+        count = header.getInt(12);
+        dataEnd = savedEnd;
+        table = index.map(FileChannel.MapMode.READ_WRITE, 0, INDEX_HEADER + (long) capacity * SLOT);
+        for (int s = 1; s <= (dataEnd - 1) / SEGMENT; s++)
+            segment(s);
+        return true;
+    }
+
+    // REBUILD THE INDEX BY SCANNING THE RECORDS
+    private void rebuildIndex() throws IOException
+    {
+        List<long[]> entries = new ArrayList<>();
+        long offset = DATA_HEADER;
+        while (offset < data.size()) {
+            MappedByteBuffer segment = segment((int) (offset / SEGMENT));
+            int p = (int) (offset % SEGMENT);
+            byte marker = segment.get(p);
+            if (marker == PADDING) {
+                offset = (offset / SEGMENT + 1) * SEGMENT;
+                continue;
+            }
+            int length = marker == RECORD && p + 5 <= SEGMENT ? segment.getInt(p + 1) : -1;
+            // A record without a message, and the END marker after it, must fit in the segment
+            int size = 1 + 4 + length + 1 + 8;
+            if (length <= 0 || p + (long) size + 1 > SEGMENT) break;
+
+            byte[] key = new byte[length];
+            segment.get(p + 5, key);
+            if (segment.get(p + 5 + length) != 0) {
+                // So must the message of an error record
+                if (p + (long) size + 4 + 1 > SEGMENT) break;
+                int messageLength = segment.getInt(p + size);
+                if (messageLength < 0 || p + (long) size + 4 + messageLength + 1 > SEGMENT) break;
+                size += 4 + messageLength;
+            }
+            entries.add(new long[] {hash(key), offset});
+            offset += size;
+        }
+
+        // A record cut short by a crash is overwritten by the next append
+        dataEnd = offset;
+        segment((int) (dataEnd / SEGMENT)).put((int) (dataEnd % SEGMENT), END);
+
+        int size = MIN_CAPACITY;
+        while (size < MAX_CAPACITY && size / 2 < entries.size()) size *= 2;
+        mapTable(size);
+        for (long[] entry : entries)
+            if (find(keyAt(entry[1]), entry[0]) < 0) insert(entry[0], entry[1]);
+        table.putInt(12, count).putLong(16, dataEnd);
+    }
+
+    // GROW THE INDEX TO newCapacity SLOTS, REINSERTING EVERY ENTRY
+    private void resize(int newCapacity)
+    {
+        long[] slots = new long[capacity * 2];
+        for (int slot = 0; slot < capacity; slot++) {
+            slots[2 * slot] = table.getLong(INDEX_HEADER + slot * SLOT);
+            slots[2 * slot + 1] = table.getLong(INDEX_HEADER + slot * SLOT + 8);
+        }
+        mapTable(newCapacity);
+        for (int slot = 0; slot < slots.length / 2; slot++)
+            if (slots[2 * slot] != 0) insert(slots[2 * slot], slots[2 * slot + 1]);
+        table.putInt(12, count).putLong(16, dataEnd);
+    }
+
+    // Map an empty index of the given capacity
+    private void mapTable(int newCapacity)
+    {
+        try {
+            index.truncate(0);
+            table = index.map(FileChannel.MapMode.READ_WRITE, 0, INDEX_HEADER + (long) newCapacity * SLOT);
+        } catch (IOException e) {
+            throw new IllegalStateException("Mapping the oracle corpus index failed", e);
+        }
+        capacity = newCapacity;
+        count = 0;
+        table.putInt(0, INDEX_MAGIC).putInt(4, VERSION).putInt(8, capacity);
+    }
+
+    private byte[] keyAt(long offset)
+    {
+        MappedByteBuffer segment = segments.get((int) (offset / SEGMENT));
+        int p = (int) (offset % SEGMENT);
+        byte[] key = new byte[segment.getInt(p + 1)];
+        segment.get(p + 5, key);
+        return key;
+    }
+
+    // Mapping of segment s of the records, mapping it (and growing the file) if needed
+    private MappedByteBuffer segment(int s)
+    {
+        try {
+            while (segments.size() <= s)
+                segments.add(data.map(FileChannel.MapMode.READ_WRITE, (long) segments.size() * SEGMENT, SEGMENT));
+        } catch (IOException e) {
+            throw new IllegalStateException("Mapping the oracle corpus failed", e);
+        }
+        return segments.get(s);
+    }
+
+    // 64-bit hash of a key, never 0 (which marks empty slots)
+    private static long hash(byte[] key)
+    {
+        long h = 0xcbf29ce484222325L;
+        for (byte b : key)
+            h = (h ^ (b & 0xff)) * 0x100000001b3L;
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        return h != 0 ? h : 1;
+    }
+
+    // CHECKSUM OF THE ORACLE'S BYTECODE: TokenizedOracle, AND THE WHOLE JAVALUATOR JAR (OR, WHEN JAVALUATOR
+    // IS LOADED FROM A DIRECTORY, EVERY FILE UNDER ITS PACKAGE DIRECTORY)
+    // Any class of the library may change how DoubleEvaluator answers, not only its own superclasses.
+    static long oracleTag()
+    {
+        CRC32 crc = new CRC32();
+        try {
+            try (InputStream in = TokenizedOracle.class.getResourceAsStream("TokenizedOracle.class")) {
+                if (in == null) throw new IOException("TokenizedOracle.class not found");
+                crc.update(in.readAllBytes());
+            }
+
+            CodeSource source = DoubleEvaluator.class.getProtectionDomain().getCodeSource();
+            if (source == null) throw new IOException("Javaluator's location is unknown");
+            Path location = Path.of(source.getLocation().toURI());
+            if (!Files.isDirectory(location)) {
+                crc.update(Files.readAllBytes(location));
+            }
+            else {
+                // A class directory may hold other classes (the client's): only Javaluator's package counts
+                Path library = location.resolve(DoubleEvaluator.class.getPackageName().replace('.', '/'));
+                List<Path> files;
+                try (Stream<Path> walk = Files.walk(library)) {
+                    files = walk.filter(Files::isRegularFile).sorted().toList();
+                }
+                for (Path file : files) {
+                    crc.update(library.relativize(file).toString().getBytes(StandardCharsets.UTF_8));
+                    crc.update(Files.readAllBytes(file));
+                }
+            }
+        } catch (IOException | URISyntaxException e) {
+            throw new IllegalStateException("Reading the oracle's classes failed", e);
+        }
+        return crc.getValue() ^ ((long) VERSION << 32);
+    }
+
+    int size()
+    {
+        lock.readLock().lock();
+        try {
+            return count;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    long hits()
+    {
+        return hits.sum();
+    }
+
+    long misses()
+    {
+        return misses.sum();
+    }
+
+    // Write the mapped pages to disk and close the files
+    @Override
+    public void close() throws IOException
+    {
+        lock.writeLock().lock();
+        try {
+            for (MappedByteBuffer segment : segments)
+                segment.force();
+            if (table != null) table.force();
+        } finally {
+            data.close();
+            index.close();
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public String toString()
+    {
+        long lookups = hits() + misses();
+        return String.format("%d expressions, %d hits, %d misses (%.1f%% hit rate)",
+                size(), hits(), misses(), lookups == 0 ? 0.0 : 100.0 * hits() / lookups);
+    }
+}
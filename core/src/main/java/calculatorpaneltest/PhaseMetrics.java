@@ -0,0 +1,155 @@
+package calculatorpaneltest;
+
+import java.lang.management.ManagementFactory;
+import java.util.Locale;
+
+// Time spent in each phase of the test cases of a run, enabled with CalculatorPanelTestClient --metrics.
+//
+// Every TestWorker records into its own PhaseMetrics (one LatencyHistogram per phase, written by the
+// worker's thread only, without locks); the client merges them when the workers are done, and reports
+// the percentiles of each phase, the cases per second and the bytes allocated per case.
+// When metrics are disabled, TestWorker and CalculatorPanelEval hold null and skip every timing.
+final class PhaseMetrics {
+
+    enum Phase {
+        GENERATE("generateExpression"),
+        TOKENIZE("tokenize"),
+        INFIX_TO_RPN("infixToRPN"),
+        EVAL_RPN("evalRPN"),
+        ORACLE("DoubleEvaluator"),
+        LOG("case log");
+
+        final String label;
+
+        Phase(String label)
+        {
+            this.label = label;
+        }
+    }
+
+    private static final Phase[] PHASES = Phase.values();
+
+    private final LatencyHistogram[] histograms = new LatencyHistogram[PHASES.length];
+    private long cases;
+    private long allocatedBytes;
+    private long allocationStart = -1;
+
+    // Wall time of the run, set by the client
+    long elapsedNanos;
+
+    PhaseMetrics()
+    {
+        for (int i = 0; i < histograms.length; i++)
+            histograms[i] = new LatencyHistogram();
+    }
+
+    // Record that phase took from start (a System.nanoTime()) until now, returning now
+    long record(Phase phase, long start)
+    {
+        long now = System.nanoTime();
+        histograms[phase.ordinal()].record(now - start);
+        return now;
+    }
+
+    void countCase()
+    {
+        cases++;
+    }
+
+    // Count the memory the current thread allocates between start() and stop()
+    void start()
+    {
+        allocationStart = allocatedBytes();
+    }
+
+    void stop()
+    {
+        if (allocationStart >= 0) allocatedBytes += allocatedBytes() - allocationStart;
+        allocationStart = -1;
+    }
+
+    // Add the measurements of another worker to these
+    void merge(PhaseMetrics other)
+    {
+        for (int i = 0; i < histograms.length; i++)
+            histograms[i].merge(other.histograms[i]);
+        cases += other.cases;
+        allocatedBytes += other.allocatedBytes;
+    }
+
+    LatencyHistogram histogram(Phase phase)
+    {
+        return histograms[phase.ordinal()];
+    }
+
+    double casesPerSecond()
+    {
+        return elapsedNanos == 0 ? 0 : cases * 1e9 / elapsedNanos;
+    }
+
+    double bytesPerCase()
+    {
+        return cases == 0 ? 0 : (double) allocatedBytes / cases;
+    }
+
+    // PHASE TABLE FOR THE CONSOLE
+    String report()
+    {
+        StringBuilder out = new StringBuilder();
+        out.append(String.format(Locale.ROOT, "    %,d cases in %.2f s: %,.0f cases/s, %,.0f bytes allocated per case%n",
+                cases, elapsedNanos / 1e9, casesPerSecond(), bytesPerCase()));
+        out.append(String.format(Locale.ROOT, "    %-20s %12s %9s %9s %9s %9s %11s %7s%n",
+                "phase (ns)", "count", "mean", "p50", "p99", "p99.9", "max", "time"));
+
+        long total = 0;
+        for (LatencyHistogram histogram : histograms)
+            total += histogram.total();
+        for (Phase phase : PHASES) {
+            LatencyHistogram h = histogram(phase);
+            if (h.count() == 0) continue;
+            out.append(String.format(Locale.ROOT, "    %-20s %,12d %9.0f %9d %9d %9d %,11d %6.1f%%%n",
+                    phase.label, h.count(), h.mean(), h.percentile(0.5), h.percentile(0.99),
+                    h.percentile(0.999), h.max(), 100.0 * h.total() / total));
+        }
+        return out.toString();
+    }
+
+    // MACHINE-READABLE EXPORT: JSON OBJECT
+    String toJson()
+    {
+        StringBuilder out = new StringBuilder();
+        out.append(String.format(Locale.ROOT, "{\"cases\":%d,\"elapsedNanos\":%d,\"casesPerSecond\":%.1f,"
+                + "\"bytesPerCase\":%.1f,\"phases\":[", cases, elapsedNanos, casesPerSecond(), bytesPerCase()));
+        String separator = "";
+        for (Phase phase : PHASES) {
+            LatencyHistogram h = histogram(phase);
+            out.append(separator).append(String.format(Locale.ROOT,
+                    "{\"phase\":\"%s\",\"count\":%d,\"meanNanos\":%.1f,\"p50\":%d,\"p99\":%d,\"p999\":%d,"
+                            + "\"max\":%d,\"totalNanos\":%d}",
+                    phase.label, h.count(), h.mean(), h.percentile(0.5), h.percentile(0.99),
+                    h.percentile(0.999), h.max(), h.total()));
+            separator = ",";
+        }
+        return out.append("]}\n").toString();
+    }
+
+    // MACHINE-READABLE EXPORT: CSV, ONE LINE PER PHASE (RUN-WIDE VALUES REPEATED ON EACH LINE)
+    String toCsv()
+    {
+        StringBuilder out = new StringBuilder(
+                "phase,count,mean_ns,p50_ns,p99_ns,p999_ns,max_ns,total_ns,cases,cases_per_second,bytes_per_case\n");
+        for (Phase phase : PHASES) {
+            LatencyHistogram h = histogram(phase);
+            out.append(String.format(Locale.ROOT, "%s,%d,%.1f,%d,%d,%d,%d,%d,%d,%.1f,%.1f\n",
+                    phase.label, h.count(), h.mean(), h.percentile(0.5), h.percentile(0.99),
+                    h.percentile(0.999), h.max(), h.total(), cases, casesPerSecond(), bytesPerCase()));
+        }
+        return out.toString();
+    }
+
+    private static long allocatedBytes()
+    {
+        return ((com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean())
+                .getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+}
@@ -0,0 +1,197 @@
+package calculatorpaneltest;
+
+// Optimization pass over a postfix program, run by CalculatorPanelEval.compile() between
+// infixToRPN() and evaluation, so that work which is the same on every evaluation is done once:
+//
+//   - constant sub-expressions are folded into a single number ("0 1 -" becomes "-1"),
+//   - multiplying or dividing by -1 becomes a NEG instruction, folded into constants
+//     ("( 0 - 1 ) * 5" becomes "-5") and merged with a neighbouring NEG ("-(-x)" becomes "x"),
+//   - operations that leave their operand unchanged are removed (x * 1, 1 * x, x / 1, x - 0, x ^ 1).
+//
+// Results are bit-for-bit those of the unoptimized program, errors included: an operation that
+// would fail (division by zero, ln or log of n <= 0, cot of 0) is never folded, so it still fails
+// at the same instruction and token position. Folded constants take the position of the operator
+// that produced them.
+//
+// Usage: java calculatorpaneltest.RpnOptimizer [number of test cases]
+//   reports how many instructions the pass removes from generated test cases
+final class RpnOptimizer {
+
+    private RpnOptimizer()
+    {}
+
+    // Optimized copy of a structurally valid program (one CompiledExpression can evaluate)
+    static TokenBuffer optimize(TokenBuffer program)
+    {
+        TokenBuffer out = new TokenBuffer(Math.max(program.size, 1));
+        out.clear(program.source);
+
+        // Index in out of the first instruction of each operand on the evaluation stack
+        int[] operandStart = new int[program.size];
+        int sp = 0;
+
+        for (int pc = 0; pc < program.size; pc++) {
+            int op = program.code[pc];
+            if (op == CalculatorPanelEval.NUMBER || op == CalculatorPanelEval.VARIABLE) {
+                operandStart[sp++] = out.size;
+                out.add(program, pc);
+            }
+            else if (op >= CalculatorPanelEval.SUB && op <= CalculatorPanelEval.POW) {
+                int b = operandStart[--sp], a = operandStart[sp - 1];
+                boolean constantA = isConstant(out, a, b), constantB = isConstant(out, b, out.size);
+
+                if (constantA && constantB && !(op == CalculatorPanelEval.DIV && out.value[b] == 0.0)) {
+                    double value = applyBinary(op, out.value[a], out.value[b]);
+                    out.size = a;
+                    addConstant(out, value, program, pc);
+                }
+                else if (constantB && isIdentity(op, out.value[b])) {
+                    out.size = b;
+                }
+                else if (constantB && out.value[b] == -1.0
+                        && (op == CalculatorPanelEval.MUL || op == CalculatorPanelEval.DIV)) {
+                    out.size = b;
+                    negate(out, a, program, pc);
+                }
+                else if (constantA && op == CalculatorPanelEval.MUL && out.value[a] == 1.0) {
+                    out.remove(a);
+                }
+                else if (constantA && op == CalculatorPanelEval.MUL && out.value[a] == -1.0) {
+                    out.remove(a);
+                    negate(out, a, program, pc);
+                }
+                else {
+                    out.add(program, pc);
+                }
+            }
+            else {
+                // Function or NEG
+                int a = operandStart[sp - 1];
+                if (op == CalculatorPanelEval.NEG) {
+                    negate(out, a, program, pc);
+                }
+                else if (isConstant(out, a, out.size) && !fails(op, out.value[a])) {
+                    double value = applyFunction(op, out.value[a]);
+                    out.size = a;
+                    addConstant(out, value, program, pc);
+                }
+                else {
+                    out.add(program, pc);
+                }
+            }
+        }
+        return out.copy();
+    }
+
+    // Whether the operand in [from, to) of out is a single number
+    private static boolean isConstant(TokenBuffer out, int from, int to)
+    {
+        return to - from == 1 && out.code[from] == CalculatorPanelEval.NUMBER;
+    }
+
+    // Whether "x op y" is exactly x for every x (for '-', only y = +0: -0 - -0 is +0)
+    private static boolean isIdentity(int op, double y)
+    {
+        return switch (op) {
+            case CalculatorPanelEval.MUL, CalculatorPanelEval.DIV, CalculatorPanelEval.POW -> y == 1.0;
+            case CalculatorPanelEval.SUB -> Double.doubleToRawLongBits(y) == 0L;
+            default -> false;
+        };
+    }
+
+    // Whether evalRPN() reports an error applying function op to x
+    private static boolean fails(int op, double x)
+    {
+        return switch (op) {
+            case CalculatorPanelEval.COT -> x == 0.0;
+            case CalculatorPanelEval.LN, CalculatorPanelEval.LOG -> x <= 0.0;
+            default -> false;
+        };
+    }
+
+    // Negate the operand at the top of the stack, which starts at index from of out
+    private static void negate(TokenBuffer out, int from, TokenBuffer program, int pc)
+    {
+        if (isConstant(out, from, out.size))
+            out.value[from] = -out.value[from];
+        else if (out.code[out.size - 1] == CalculatorPanelEval.NEG)
+            out.size--;
+        else
+            out.add(CalculatorPanelEval.NEG, 0.0, program.position[pc], program.start[pc], program.end[pc]);
+    }
+
+    private static void addConstant(TokenBuffer out, double value, TokenBuffer program, int pc)
+    {
+        out.add(CalculatorPanelEval.NUMBER, value, program.position[pc], program.start[pc], program.end[pc]);
+    }
+
+    // Operators on constant operands, with the same arithmetic as CalculatorPanelEval.evalRPN()
+    static double applyBinary(int op, double a, double b)
+    {
+        return switch (op) {
+            case CalculatorPanelEval.ADD -> a + b;
+            case CalculatorPanelEval.SUB -> a - b;
+            case CalculatorPanelEval.MUL -> a * b;
+            case CalculatorPanelEval.DIV -> a / b;
+            default -> Math.pow(a, b);
+        };
+    }
+
+    static double applyFunction(int op, double x)
+    {
+        return switch (op) {
+            case CalculatorPanelEval.SIN -> Math.sin(x);
+            case CalculatorPanelEval.COS -> Math.cos(x);
+            case CalculatorPanelEval.TAN -> Math.tan(x);
+            case CalculatorPanelEval.COT -> 1.0 / Math.tan(x);
+            case CalculatorPanelEval.NEG -> -x;
+            default -> Math.log(x);
+        };
+    }
+
+    // REPORT THE INSTRUCTIONS REMOVED FROM GENERATED TEST CASES
+    // Each case is compiled twice: as generated, so that every literal is a constant, and with its
+    // first number replaced by a variable, so that only part of it can be folded.
+    public static void main(String[] args)
+    {
+        long cases = args.length > 0 ? Long.parseLong(args[0]) : 100_000;
+        ExpressionGenerator generator = new ExpressionGenerator();
+        CaseRandom random = new CaseRandom(0, 0);
+
+        TokenBuffer tokens = new TokenBuffer();
+        TokenBuffer program = new TokenBuffer();
+        IntStack operatorStack = new IntStack();
+
+        long compiled = 0, before = 0, constantAfter = 0, variableAfter = 0;
+        for (long i = 0; i < cases; i++) {
+            random.reset(0, i);
+            generator.generateExpression(random);
+            String expr = generator.formatted.toString();
+
+            ExpressionTokenizer.tokenize(expr, tokens);
+            if (CalculatorPanelEval.infixToRPN(tokens, program, operatorStack) >= 0
+                    || CompiledExpression.maxStackDepth(program) < 0)
+                continue;
+            TokenBuffer withVariable = program.copy();
+            for (int pc = 0; pc < withVariable.size; pc++) {
+                if (withVariable.code[pc] == CalculatorPanelEval.NUMBER) {
+                    withVariable.code[pc] = CalculatorPanelEval.VARIABLE;
+                    withVariable.value[pc] = 0;
+                    break;
+                }
+            }
+
+            compiled++;
+            before += program.size;
+            constantAfter += optimize(program).size;
+            variableAfter += optimize(withVariable).size;
+        }
+
+        System.out.printf("%d generated test cases, %.2f instructions on average before optimization%n",
+                compiled, (double) before / compiled);
+        System.out.printf("  constant expressions:      %.2f after, %.1f%% removed%n",
+                (double) constantAfter / compiled, 100.0 * (before - constantAfter) / before);
+        System.out.printf("  with one variable operand: %.2f after, %.1f%% removed%n",
+                (double) variableAfter / compiled, 100.0 * (before - variableAfter) / before);
+    }
+}
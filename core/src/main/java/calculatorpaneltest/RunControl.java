@@ -0,0 +1,198 @@
+package calculatorpaneltest;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+// When the test cases of a run stop, and how fast they run, shared by all the workers of the run:
+//   - a run stops after its number of cases, at its deadline (--duration), or on SIGINT (Ctrl-C),
+//   - with a target rate (--rate), case i does not start before i / rate seconds into the run,
+//   - a progress line (cases, throughput, ETA, mismatches) is printed every progress interval.
+//
+// On SIGINT, a shutdown hook asks the workers to stop after their current case and waits for the
+// client to report the partial results and call finished(), so that an interrupted run still gets
+// its statistics (and its logs and corpora closed).
+final class RunControl {
+
+    // How long the shutdown hook waits for the client to report
+    private static final long SHUTDOWN_WAIT_SECONDS = 60;
+
+    private final long cases;
+    private final long start = System.nanoTime();
+    private final long deadline;
+    private final double nanosPerCase;
+    // First case of a resumed run: cases before it ran in an earlier JVM
+    private long firstCase;
+
+    private final LongAdder completed = new LongAdder();
+    private final LongAdder mismatches = new LongAdder();
+
+    private volatile boolean stopping;
+    private volatile boolean interrupted;
+    // Whether the shutdown hook prints that the run was interrupted
+    boolean announceInterrupt = true;
+
+    private final CountDownLatch done = new CountDownLatch(1);
+    private final Thread shutdownHook = new Thread(this::interrupt, "run-shutdown");
+    // Thread running the client, which calls finished()
+    private Thread owner;
+    private Thread progressThread;
+
+    // Run of the given number of cases (Long.MAX_VALUE for no limit), for at most durationNanos
+    // (0 for no limit), at most rate cases per second (0 for no limit)
+    RunControl(long cases, long durationNanos, double rate)
+    {
+        this.cases = cases;
+        this.deadline = durationNanos > 0 ? start + durationNanos : 0;
+        this.nanosPerCase = rate > 0 ? 1e9 / rate : 0;
+    }
+
+    // Resume the run at case first (before start()): the rate and ETA count from there
+    void startAt(long first)
+    {
+        firstCase = first;
+    }
+
+    // Stop gracefully on SIGINT, and print a progress line every progressSeconds (0 for none)
+    void start(double progressSeconds)
+    {
+        owner = Thread.currentThread();
+        Runtime.getRuntime().addShutdownHook(shutdownHook);
+        if (progressSeconds <= 0) return;
+
+        long interval = (long) (progressSeconds * 1e9);
+        progressThread = new Thread(() -> {
+            while (!stopping) {
+                LockSupport.parkNanos(interval);
+                if (!stopping) System.out.println(progress());
+            }
+        }, "run-progress");
+        progressThread.setDaemon(true);
+        progressThread.start();
+    }
+
+    // WHETHER CASE index SHOULD RUN, WAITING FOR ITS TURN AT THE TARGET RATE
+    boolean proceed(long index)
+    {
+        if (stopping || index >= cases) return false;
+        long now = System.nanoTime();
+        if (deadline != 0 && now - deadline >= 0) {
+            stopping = true;
+            return false;
+        }
+        if (nanosPerCase > 0) {
+            long due = start + (long) ((index - firstCase) * nanosPerCase);
+            while (!stopping && due - now > 0) {
+                LockSupport.parkNanos(Math.min(due - now, 100_000_000L));
+                now = System.nanoTime();
+            }
+            return !stopping;
+        }
+        return true;
+    }
+
+    // Count a case that has run
+    void completed(boolean mismatch)
+    {
+        completed.increment();
+        if (mismatch) mismatches.increment();
+    }
+
+    // Count cases that have run elsewhere (e.g. a shard run by a worker JVM)
+    void completed(long count, long mismatchCount)
+    {
+        completed.add(count);
+        mismatches.add(mismatchCount);
+    }
+
+    long completed()
+    {
+        return completed.sum();
+    }
+
+    // Nanoseconds left until the deadline (at least 1 once it has passed), or 0 without a deadline
+    long remainingNanos()
+    {
+        return deadline == 0 ? 0 : Math.max(1, deadline - System.nanoTime());
+    }
+
+    // Whether the run was stopped by SIGINT
+    boolean interrupted()
+    {
+        return interrupted;
+    }
+
+    // The cases are done: stop the workers (if still running) and the progress line
+    void stop()
+    {
+        stopping = true;
+        if (progressThread != null) {
+            LockSupport.unpark(progressThread);
+            try {
+                progressThread.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    // The client has reported the results: release the shutdown hook
+    void finished()
+    {
+        stop();
+        done.countDown();
+        try {
+            Runtime.getRuntime().removeShutdownHook(shutdownHook);
+        } catch (IllegalStateException e) {
+            // Already shutting down: the hook is running
+        }
+    }
+
+    // SHUTDOWN HOOK: STOP THE WORKERS AND WAIT FOR THE CLIENT TO REPORT
+    // (unless the client's thread has died, e.g. the JVM is exiting on an exception)
+    private void interrupt()
+    {
+        if (done.getCount() == 0 || !owner.isAlive()) return;
+        interrupted = true;
+        stopping = true;
+        if (announceInterrupt)
+            System.out.println("\nInterrupted: stopping after the current cases and reporting partial results...");
+        try {
+            long end = System.nanoTime() + TimeUnit.SECONDS.toNanos(SHUTDOWN_WAIT_SECONDS);
+            while (!done.await(100, TimeUnit.MILLISECONDS) && owner.isAlive() && System.nanoTime() - end < 0) {
+                // Keep waiting for the report
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // PROGRESS LINE: ELAPSED TIME, CASES, THROUGHPUT, ETA AND MISMATCHES SO FAR
+    String progress()
+    {
+        long now = System.nanoTime();
+        double elapsed = (now - start) / 1e9;
+        long n = completed();
+        double rate = elapsed > 0 ? n / elapsed : 0;
+
+        // Remaining time: until the deadline, or until the last case at the current rate, whichever comes first
+        double eta = Double.NaN;
+        if (cases != Long.MAX_VALUE && rate > 0) eta = (cases - firstCase - n) / rate;
+        if (deadline != 0) {
+            double untilDeadline = Math.max(0, (deadline - now) / 1e9);
+            eta = Double.isNaN(eta) ? untilDeadline : Math.min(eta, untilDeadline);
+        }
+
+        return String.format("    [%s] %,d cases, %,.0f cases/s, ETA %s, %,d mismatches",
+                duration(elapsed), n, rate, Double.isNaN(eta) ? "unknown" : duration(eta), mismatches.sum());
+    }
+
+    private static String duration(double seconds)
+    {
+        long s = Math.round(seconds);
+        if (s < 60) return s + "s";
+        if (s < 3600) return (s / 60) + "m" + String.format("%02d", s % 60) + "s";
+        return (s / 3600) + "h" + String.format("%02d", s / 60 % 60) + "m";
+    }
+}
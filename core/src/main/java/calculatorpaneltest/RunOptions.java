@@ -0,0 +1,265 @@
+package calculatorpaneltest;
+
+// Command-line options of CalculatorPanelTestClient.
+//
+//   --cases <n>       number of test cases to run (asked on the console if neither this nor --duration is given)
+//   --duration <time> stop after the given wall-clock time (e.g. 90s, 30m, 2h), or after --cases if sooner
+//   --rate <n>        run at most n test cases per second
+//   --progress <s>    print a progress line every s seconds (10 by default, 0 for none)
+//   --threads <n>     generate and evaluate test cases on n worker threads
+//   --parallel        same as --threads with the number of available processors
+//   --seed <seed>     master seed of the run (random by default)
+//   --replay <seed> <index> [<index> ...]
+//                     regenerate and re-evaluate only the given cases of a previous run
+//   --binary-log <file>
+//                     log results to a binary log (see BinaryResultLog) instead of the text file
+//   --log-expressions with --binary-log, store every expression (by default only mismatches)
+//   --cache <MB>      cache the calculator's results (see EvaluationCache), shared by all threads
+//   --fuzz            coverage-guided fuzzing (see CoverageFuzzer) instead of uniform generation
+//                     (single-threaded, text log only)
+//   --oracle-corpus <file>
+//                     look the oracle's answers up in a persistent corpus (see OracleCorpus), adding new ones
+//   --metrics         time each phase of the test cases (see PhaseMetrics)
+//   --metrics-file <file>
+//                     with --metrics implied, also write the metrics to file as JSON (or CSV for *.csv)
+//   --minimize        shrink the mismatches of the run (see MismatchMinimizer) into the mismatch corpus
+//   --checkpoint <file>
+//                     save the progress of the run to file periodically (see Checkpoint)
+//   --checkpoint-interval <s>
+//                     seconds between checkpoints
+//   --resume          continue the run saved in the --checkpoint file (its seed, cases and duration)
+//   --workers <n>     run the cases on n worker JVMs (see ShardCoordinator)
+//   --shard-size <n>  cases per shard handed to a worker JVM
+//   --shard-worker <port>
+//                     (internal) run as a worker JVM of the coordinator listening on port
+final class RunOptions {
+
+    // Number of test cases (0 to ask), wall-clock budget in nanoseconds (0 for none),
+    // target cases per second (0 for no limit) and progress line interval
+    long cases;
+    long durationNanos;
+    double rate;
+    double progressSeconds = 10;
+
+    // Number of worker threads (1 runs the original single-threaded loop)
+    int threads = 1;
+
+    // Master seed from which every test case is derived
+    long seed = new java.util.SplittableRandom().nextLong();
+
+    // Case indices to replay (null for a normal run)
+    long[] replay;
+
+    // Binary result log replacing the text file of test cases (null to write the text file)
+    String binaryLog;
+    boolean logExpressions;
+
+    // Memory cap of the calculator's result cache in bytes (0 for no cache)
+    long cacheBytes;
+
+    // Generate cases with CoverageFuzzer (single-threaded) instead of ExpressionGenerator alone
+    boolean fuzz;
+
+    // Persistent corpus of the oracle's answers (null to always evaluate with the oracle)
+    String oracleCorpus;
+
+    // Per-phase timings, and the file they are exported to (null for the console only)
+    boolean metrics;
+    String metricsFile;
+
+    // Minimize the run's mismatches into MismatchMinimizer.CORPUS_FILE after the run
+    boolean minimize;
+
+    // Checkpoint file (null for none), seconds between checkpoints, and whether to resume from it
+    String checkpoint;
+    double checkpointSeconds = Checkpoint.DEFAULT_INTERVAL_SECONDS;
+    boolean resume;
+
+    // Number of worker JVMs (0 to run in this JVM) and cases per shard handed to them
+    int workers;
+    long shardSize = ShardCoordinator.DEFAULT_SHARD_SIZE;
+
+    // Port of the coordinator when running as one of its worker JVMs (0 otherwise)
+    int shardWorkerPort;
+
+    static final String USAGE = """
+            Usage: java -jar calculatorpaneltest.jar [options]
+              --cases <n>       number of test cases (asked on the console without --cases or --duration)
+              --duration <time> stop after the given wall-clock time: <n>s, <n>m or <n>h (e.g. 30m),
+                                or after --cases test cases if that comes first
+              --rate <n>        run at most n test cases per second
+              --progress <s>    print a progress line every s seconds (10 by default, 0 for none)
+              --threads <n>     generate and evaluate test cases on n worker threads
+              --parallel        use one worker thread per available processor
+              --seed <seed>     master seed of the run (random by default)
+              --replay <seed> <index> [<index> ...]
+                                regenerate and re-evaluate only the given cases of a previous run
+              --binary-log <file>
+                                log results to a binary log instead of "calc_test_cases.txt"
+                                (read it with: java calculatorpaneltest.BinaryLogReader <file>)
+              --log-expressions with --binary-log, store every expression (by default only mismatches)
+              --cache <MB>      cache the calculator's results in at most MB megabytes, shared by all threads
+              --fuzz            coverage-guided fuzzing: bias generation toward unexplored transitions
+                                and evaluator branches, and mutate a corpus of interesting expressions
+                                (single-threaded, with the text log only)
+              --oracle-corpus <file>
+                                reuse the oracle's answers stored in file by previous runs, evaluating
+                                (and storing) only expressions it does not hold yet
+              --metrics         report p50/p99/p99.9/max latencies of each phase (generation, tokenize,
+                                infixToRPN, evalRPN, oracle, case log), cases/s and bytes allocated per case
+              --metrics-file <file>
+                                same as --metrics, also exporting them to file as JSON (CSV if it ends in .csv)
+              --minimize        shrink each mismatch of the run to a minimal mismatching expression
+                                and append new ones to "mismatch_corpus.txt"
+              --checkpoint <file>
+                                save the statistics and position of the run to file periodically (and when
+                                it stops), so that a run whose JVM dies can be resumed
+              --checkpoint-interval <s>
+                                seconds between checkpoints (60 by default)
+              --resume          continue the run saved in the --checkpoint file where it was last saved,
+                                with its seed, case count and the rest of its duration
+              --workers <n>     run the cases on n worker JVMs started and fed by this one over loopback
+                                sockets; shards of dead workers are run again by the others
+              --shard-size <n>  cases per shard handed to a worker JVM (65536 by default)
+            """;
+
+    // Parse command-line arguments, throwing IllegalArgumentException on invalid input
+    static RunOptions parse(String[] args)
+    {
+        RunOptions options = new RunOptions();
+        boolean seedGiven = false;
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--cases" -> options.cases = positive(args, ++i);
+                case "--duration" -> options.durationNanos = duration(args, ++i);
+                case "--rate" -> options.rate = positive(args, ++i);
+                case "--progress" -> options.progressSeconds = nonNegative(args, ++i);
+                case "--threads" -> options.threads = (int) positive(args, ++i, Integer.MAX_VALUE);
+                case "--parallel" -> options.threads = Runtime.getRuntime().availableProcessors();
+                case "--seed" -> {
+                    options.seed = number(args, ++i);
+                    seedGiven = true;
+                }
+                case "--binary-log" -> options.binaryLog = value(args, ++i);
+                case "--log-expressions" -> options.logExpressions = true;
+                case "--cache" -> options.cacheBytes = positive(args, ++i, Long.MAX_VALUE >> 20) << 20;
+                case "--fuzz" -> options.fuzz = true;
+                case "--oracle-corpus" -> options.oracleCorpus = value(args, ++i);
+                case "--metrics" -> options.metrics = true;
+                case "--metrics-file" -> {
+                    options.metrics = true;
+                    options.metricsFile = value(args, ++i);
+                }
+                case "--minimize" -> options.minimize = true;
+                case "--checkpoint" -> options.checkpoint = value(args, ++i);
+                case "--checkpoint-interval" -> options.checkpointSeconds = positive(args, ++i);
+                case "--resume" -> options.resume = true;
+                case "--workers" -> options.workers = (int) positive(args, ++i, Integer.MAX_VALUE);
+                case "--shard-size" -> options.shardSize = positive(args, ++i);
+                case "--shard-worker" -> options.shardWorkerPort = (int) positive(args, ++i, 65535);
+                case "--replay" -> {
+                    options.seed = number(args, ++i);
+                    int first = i + 1;
+                    while (i + 1 < args.length && !args[i + 1].startsWith("--")) i++;
+                    if (i < first) throw new IllegalArgumentException("--replay requires at least one case index");
+                    options.replay = new long[i - first + 1];
+                    for (int k = first; k <= i; k++) options.replay[k - first] = nonNegative(args, k);
+                }
+                default -> throw new IllegalArgumentException("Unknown option: " + args[i]);
+            }
+        }
+        // Fuzzed cases depend on the ones before them: they run on one thread, and are not (seed, index)
+        // cases that a binary log (BinaryLogReader --regenerate) could rebuild
+        if (options.fuzz && options.threads > 1)
+            throw new IllegalArgumentException("--fuzz runs on a single thread: it cannot be combined with "
+                    + "--threads or --parallel");
+        if (options.fuzz && options.binaryLog != null)
+            throw new IllegalArgumentException("--fuzz cannot be combined with --binary-log: fuzzed cases "
+                    + "cannot be regenerated from their seed and index");
+        // Worker JVMs run uniform cases only, and keep neither logs nor metrics
+        if (options.workers > 0 && (options.fuzz || options.replay != null || options.binaryLog != null
+                || options.oracleCorpus != null || options.metrics || options.rate > 0 || options.threads > 1))
+            throw new IllegalArgumentException("--workers cannot be combined with --fuzz, --replay, --binary-log, "
+                    + "--oracle-corpus, --metrics, --rate or --threads");
+        // Checkpoints follow the single-threaded loop and its text log
+        if (options.resume && options.checkpoint == null)
+            throw new IllegalArgumentException("--resume requires --checkpoint <file>");
+        // A resumed run continues the seed, case count and duration saved in its checkpoint
+        if (options.resume && (seedGiven || options.cases > 0 || options.durationNanos > 0))
+            throw new IllegalArgumentException("--resume continues the seed, case count and duration of the "
+                    + "checkpointed run: it cannot be combined with --seed, --cases or --duration");
+        if (options.checkpoint != null && (options.fuzz || options.replay != null || options.binaryLog != null
+                || options.threads > 1 || options.workers > 0))
+            throw new IllegalArgumentException("--checkpoint cannot be combined with --fuzz, --replay, --binary-log, "
+                    + "--threads or --workers");
+        return options;
+    }
+
+    // Value args[i] of an option
+    private static String value(String[] args, int i)
+    {
+        if (i >= args.length) throw new IllegalArgumentException(args[i - 1] + " requires a value");
+        return args[i];
+    }
+
+    // Value args[i] of an option, which must be a whole number
+    private static long number(String[] args, int i)
+    {
+        try {
+            return Long.parseLong(value(args, i));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Expected a whole number, got " + args[i]);
+        }
+    }
+
+    private static long nonNegative(String[] args, int i)
+    {
+        long value = number(args, i);
+        if (value < 0) throw new IllegalArgumentException("Expected a non-negative number, got " + args[i]);
+        return value;
+    }
+
+    // Value args[i] of an option, which must be a positive duration: a number of seconds (s),
+    // minutes (m) or hours (h), in nanoseconds
+    private static long duration(String[] args, int i)
+    {
+        String value = value(args, i);
+        long unit = switch (value.isEmpty() ? ' ' : value.charAt(value.length() - 1)) {
+            case 's' -> 1_000_000_000L;
+            case 'm' -> 60_000_000_000L;
+            case 'h' -> 3_600_000_000_000L;
+            default -> 0;
+        };
+        // Without a unit (an empty value included) there is no amount to parse
+        if (unit > 0) {
+            try {
+                long amount = Long.parseLong(value.substring(0, value.length() - 1));
+                if (amount > 0 && amount <= Long.MAX_VALUE / unit) return amount * unit;
+            } catch (NumberFormatException e) {
+                // Reported below
+            }
+        }
+        throw new IllegalArgumentException(args[i - 1] + " requires a duration such as 90s, 30m or 2h, got " + value);
+    }
+
+    // Value following option args[i - 1], which must be a positive whole number
+    static long positive(String[] args, int i)
+    {
+        return positive(args, i, Long.MAX_VALUE);
+    }
+
+    // Same, at most max (checked before the caller narrows or scales the value)
+    private static long positive(String[] args, int i, long max)
+    {
+        try {
+            long value = Long.parseLong(value(args, i));
+            if (value > 0 && value <= max) return value;
+        } catch (NumberFormatException e) {
+            // Reported below
+        }
+        if (max < Long.MAX_VALUE)
+            throw new IllegalArgumentException(args[i - 1] + " requires a whole number from 1 to " + max
+                    + ", got " + args[i]);
+        throw new IllegalArgumentException(args[i - 1] + " requires a positive whole number, got " + args[i]);
+    }
+}
@@ -0,0 +1,319 @@
+package calculatorpaneltest;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// Runs the test cases of a run on several worker JVMs (CalculatorPanelTestClient --workers <n>).
+//
+// The coordinator splits the case indices of the run into shards of consecutive indices, starts the
+// worker JVMs (the same java command and class path, with --shard-worker <port>), and hands shards to
+// them over loopback sockets. Each worker runs a shard with a single TestWorker and sends back the
+// shard's stats array and mismatching case indices, which the coordinator adds to the run's totals.
+// Since every case is derived from (seed, index), the totals do not depend on the number of workers.
+//
+// A worker that dies (or whose connection fails) has its shard put back in the queue for the others,
+// and is replaced by a new JVM, at most one replacement per worker of the run. With --duration, each
+// shard is sent with the time left, so workers stop at the deadline; after Ctrl-C, the coordinator
+// hands out no more shards and reports the shards completed so far.
+//
+// Workers share the coordinator's console, so Ctrl-C reaches them too: a worker interrupted by SIGINT
+// cuts its shard short but still sends its RESULT, then leaves. The cases of a shard that was cut short
+// while the run goes on are put back in the queue, so a worker interrupted on its own loses nothing.
+//
+// Messages (DataOutputStream, big-endian):
+//   worker -> coordinator: HELLO <magic int> <pid long>
+//                          RESULT <start long> <cases run long> <stats long[STATS_LENGTH]>
+//                                 <mismatch count int> <mismatching indices long[]>
+//   coordinator -> worker: SHARD <start long> <end long> <time left in nanoseconds long, 0 for none>
+//                          DONE
+final class ShardCoordinator {
+
+    // Default number of cases per shard (--shard-size)
+    static final long DEFAULT_SHARD_SIZE = 1 << 16;
+
+    private static final int MAGIC = 0x43505348;    // "CPSH"
+    private static final int SHARD = 1, DONE = 2, RESULT = 3;
+
+    // How long a new worker JVM has to connect
+    private static final int CONNECT_TIMEOUT_MILLIS = 60_000;
+    // How long a worker JVM has to exit after DONE
+    private static final long EXIT_WAIT_SECONDS = 10;
+
+    // JVM options worker JVMs inherit, as is or by prefix: not, e.g., -Xmx sized for the coordinator,
+    // or a debugger agent whose port only one JVM can listen on
+    private static final String[] INHERITED_OPTIONS = {"--enable-preview", "-ea", "-enableassertions",
+            "-da", "-disableassertions", "-esa", "-dsa"};
+    private static final String[] INHERITED_PREFIXES = {"-D", "--add-modules=", "-ea:", "-enableassertions:",
+            "-da:", "-disableassertions:"};
+
+    private final RunOptions options;
+    private final long cases;
+    private final long shardSize;
+    private final RunControl control;
+
+    // Shards of dead workers, run again before new ones ({start, end} pairs), and the next new shard
+    private final ArrayDeque<long[]> requeued = new ArrayDeque<>();
+    private long nextCase;
+    // Links that are running a shard, and replacement JVMs left to start
+    private int busy;
+    private int restartsLeft;
+
+    private final long[] stats = new long[CalculatorPanelTestClient.STATS_LENGTH];
+    private final List<Long> mismatches = new ArrayList<>();
+    private final List<Process> processes = new ArrayList<>();
+
+    ShardCoordinator(RunOptions options, long cases, RunControl control)
+    {
+        this.options = options;
+        this.cases = cases;
+        this.shardSize = options.shardSize;
+        this.control = control;
+        this.restartsLeft = options.workers;
+    }
+
+    // RUN THE CASES ON options.workers JVMS, RETURNING THE MERGED STATS AND ADDING THE MISMATCHING
+    // CASE INDICES (SORTED) TO mismatches
+    long[] run(List<Long> runMismatches) throws IOException
+    {
+        try (ServerSocket server = new ServerSocket(0, options.workers, InetAddress.getLoopbackAddress())) {
+            server.setSoTimeout(CONNECT_TIMEOUT_MILLIS);
+            List<Thread> links = new ArrayList<>();
+            for (int w = 0; w < options.workers; w++) {
+                Thread link = new Thread(() -> link(server), "shard-link-" + w);
+                links.add(link);
+                link.start();
+            }
+            for (Thread link : links)
+                link.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for worker JVMs", e);
+        } finally {
+            synchronized (this) {
+                for (Process process : processes)
+                    process.destroy();
+            }
+        }
+
+        synchronized (this) {
+            if (!requeued.isEmpty() && !control.interrupted())
+                System.out.println("\nAll worker JVMs died: " + requeued.size() + " shards were not run.");
+            Collections.sort(mismatches);
+            runMismatches.addAll(mismatches);
+            return stats.clone();
+        }
+    }
+
+    // COORDINATOR SIDE OF ONE WORKER SLOT: START A WORKER JVM AND FEED IT SHARDS UNTIL NONE ARE LEFT,
+    // REPLACING THE JVM IF IT DIES
+    private void link(ServerSocket server)
+    {
+        boolean replacement = false;
+        while (true) {
+            if (replacement && !takeRestart()) return;
+            replacement = true;
+
+            // Any new worker may connect first: the link serves whichever it accepts
+            Process process = null;
+            long[] shard = null;
+            try {
+                startWorker(server.getLocalPort());
+            } catch (IOException e) {
+                System.out.println("Starting a worker JVM failed: " + e.getMessage());
+                continue;
+            }
+
+            try (Socket socket = server.accept()) {
+                DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+                DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+                if (in.readInt() != MAGIC) throw new IOException("Unexpected worker handshake");
+                long pid = in.readLong();
+                process = process(pid);
+
+                while ((shard = nextShard(shard != null)) != null) {
+                    out.writeInt(SHARD);
+                    out.writeLong(shard[0]);
+                    out.writeLong(shard[1]);
+                    out.writeLong(control.remainingNanos());
+                    out.flush();
+                    readResult(in, shard);
+                }
+                out.writeInt(DONE);
+                out.flush();
+                if (process != null && !process.waitFor(EXIT_WAIT_SECONDS, TimeUnit.SECONDS))
+                    System.out.println("Worker JVM " + pid + " did not exit");
+                return;
+            } catch (IOException e) {
+                // The worker died (or was never heard from): its shard goes to another worker
+                if (process != null) process.destroy();
+                if (shard != null) requeue(shard);
+                if (!control.interrupted()) {
+                    String reason = e instanceof EOFException ? "connection closed" : e.getMessage();
+                    System.out.println("Worker JVM failed (" + reason + ")"
+                            + (shard != null ? ": shard " + shard[0] + "-" + shard[1] + " requeued" : ""));
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    // Start a worker JVM with this JVM's command line options, connecting back to port
+    private void startWorker(int port) throws IOException
+    {
+        List<String> command = new ArrayList<>();
+        command.add(ProcessHandle.current().info().command().orElse("java"));
+        for (String option : ManagementFactory.getRuntimeMXBean().getInputArguments())
+            if (isInherited(option)) command.add(option);
+        command.add("-cp");
+        command.add(System.getProperty("java.class.path"));
+        command.add(CalculatorPanelTestClient.class.getName());
+        Collections.addAll(command, "--shard-worker", Integer.toString(port), "--seed", Long.toString(options.seed));
+        if (options.cacheBytes > 0)
+            Collections.addAll(command, "--cache", Long.toString(options.cacheBytes >> 20));
+        if (options.minimize)
+            command.add("--minimize");
+
+        // Workers print nothing but errors: keep them on the console
+        Process process = new ProcessBuilder(command).inheritIO().start();
+        synchronized (this) {
+            processes.add(process);
+        }
+    }
+
+    private static boolean isInherited(String option)
+    {
+        for (String inherited : INHERITED_OPTIONS)
+            if (option.equals(inherited)) return true;
+        for (String prefix : INHERITED_PREFIXES)
+            if (option.startsWith(prefix)) return true;
+        return false;
+    }
+
+    // Worker JVM started by this coordinator with the given process id (null if unknown)
+    private synchronized Process process(long pid)
+    {
+        for (Process process : processes)
+            if (process.pid() == pid) return process;
+        return null;
+    }
+
+    // NEXT SHARD TO RUN ({start, end}), OR NULL IF THE RUN IS OVER
+    // finished is true when the caller has just completed a shard
+    private synchronized long[] nextShard(boolean finished)
+    {
+        if (finished) busy--;
+        long[] shard = requeued.poll();
+        if (shard == null && control.proceed(nextCase)) {
+            shard = new long[] {nextCase, Math.min(cases, nextCase + shardSize)};
+            nextCase = shard[1];
+        }
+        // Stopped: requeued shards are not run
+        if (shard != null && control.interrupted()) shard = null;
+        if (shard != null) busy++;
+        return shard;
+    }
+
+    private synchronized void requeue(long[] shard)
+    {
+        busy--;
+        requeued.add(shard);
+    }
+
+    // Whether a dead worker is replaced: not if the run is over, or when out of replacements
+    private synchronized boolean takeRestart()
+    {
+        if (control.interrupted() || restartsLeft == 0) return false;
+        if (requeued.isEmpty() && busy == 0 && !control.proceed(nextCase)) return false;
+        restartsLeft--;
+        return true;
+    }
+
+    // Read the RESULT of shard and add it to the run's totals
+    private void readResult(DataInputStream in, long[] shard) throws IOException
+    {
+        if (in.readInt() != RESULT || in.readLong() != shard[0]) throw new IOException("Unexpected worker message");
+        long completed = in.readLong();
+        long[] shardStats = new long[stats.length];
+        for (int i = 0; i < shardStats.length; i++)
+            shardStats[i] = in.readLong();
+        int count = in.readInt();
+        long[] shardMismatches = new long[count];
+        for (int i = 0; i < count; i++)
+            shardMismatches[i] = in.readLong();
+
+        synchronized (this) {
+            for (int i = 0; i < stats.length; i++)
+                stats[i] += shardStats[i];
+            for (long index : shardMismatches)
+                mismatches.add(index);
+            // Cut short (the worker was interrupted) while the run goes on: its other cases run again
+            long next = shard[0] + completed;
+            if (next < shard[1] && control.proceed(next))
+                requeued.add(new long[] {next, shard[1]});
+        }
+        control.completed(completed, shardStats[4]);
+    }
+
+    // WORKER JVM: RUN THE SHARDS SENT BY THE COORDINATOR ON port UNTIL DONE (OR SIGINT)
+    static void runWorker(RunOptions options) throws IOException
+    {
+        // On SIGINT, stop the current shard and report it before the JVM exits (the coordinator,
+        // interrupted too, announces it)
+        RunControl interrupt = new RunControl(Long.MAX_VALUE, 0, 0);
+        interrupt.announceInterrupt = false;
+        interrupt.start(0);
+
+        EvaluationCache cache = options.cacheBytes > 0 ? new EvaluationCache(options.cacheBytes) : null;
+        TestWorker worker = new TestWorker(options.seed, CaseLog.NONE, cache);
+        worker.mismatchesKept = options.minimize
+                ? CalculatorPanelTestClient.MAX_MINIMIZED : TestWorker.MAX_MISMATCHES_KEPT;
+
+        try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), options.shardWorkerPort)) {
+            DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+            out.writeInt(MAGIC);
+            out.writeLong(ProcessHandle.current().pid());
+            out.flush();
+
+            while (!interrupt.interrupted() && in.readInt() == SHARD) {
+                long start = in.readLong(), end = in.readLong(), remainingNanos = in.readLong();
+                Arrays.fill(worker.stats, 0);
+                worker.mismatches.clear();
+
+                // Cases [start, end), stopping at the run's deadline or on SIGINT
+                RunControl shard = new RunControl(end, remainingNanos, 0);
+                long i = start;
+                while (shard.proceed(i) && interrupt.proceed(i))
+                    worker.runCase(i++);
+
+                out.writeInt(RESULT);
+                out.writeLong(start);
+                out.writeLong(i - start);
+                for (long count : worker.stats)
+                    out.writeLong(count);
+                out.writeInt(worker.mismatches.size());
+                for (long index : worker.mismatches)
+                    out.writeLong(index);
+                out.flush();
+            }
+        } finally {
+            interrupt.finished();
+        }
+    }
+}
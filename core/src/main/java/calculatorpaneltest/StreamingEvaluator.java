@@ -0,0 +1,233 @@
+package calculatorpaneltest;
+
+import java.io.BufferedWriter;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+
+// Evaluates an expression read from a Reader or channel without holding it in memory: tokens are
+// scanned from a small buffer, and every instruction infixToRPN() would append to the postfix program
+// is applied at once to the operand stack, as evalRPN() would. Memory is bounded by the nesting depth
+// of the expression (open brackets, pending operators and their operands, including chains of the
+// right-associative '^'), whatever its length.
+//
+// Results are those of CalculatorPanelEval.tryEvaluate() on the whole expression, errors and token
+// positions included. In particular a mismatched bracket is reported even if an evaluation error comes
+// before it, as infixToRPN() fails before evalRPN() runs: after an evaluation error the input is still
+// read to the end, only checking the brackets. Token positions beyond Integer.MAX_VALUE are clamped.
+//
+// Usage: java calculatorpaneltest.StreamingEvaluator [<file>]
+//                                            evaluate the expression in file (or stdin)
+//        java calculatorpaneltest.StreamingEvaluator --generate <tokens> [<seed>] [<max depth>]
+//                                            write a giant expression to stdout
+final class StreamingEvaluator {
+
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private final char[] buffer = new char[BUFFER_SIZE];
+    // Characters of the token being read, scanned by ExpressionTokenizer like a whole expression
+    private final StringBuilder token = new StringBuilder();
+    private final TokenBuffer scanned = new TokenBuffer(1);
+
+    // Operator stack of the shunting-yard algorithm (codes and token positions), and operand stack
+    private final IntStack operators = new IntStack();
+    private final IntStack operatorPositions = new IntStack();
+    private final DoubleStack operands = new DoubleStack();
+
+    private long tokens;
+    private int maxDepth;
+
+    // First evaluation error, until the input has been read (NONE if there is none)
+    private EvalError error;
+    private int errorPosition;
+    // Position of a mismatched closing bracket, or -1
+    private int mismatch;
+
+    // EVALUATE THE EXPRESSION READ FROM in, STORING ITS VALUE OR ERROR INTO result
+    // Returns true if the expression evaluated successfully.
+    boolean evaluate(Reader in, EvalResult result) throws IOException
+    {
+        token.setLength(0);
+        operators.clear();
+        operatorPositions.clear();
+        operands.clear();
+        tokens = 0;
+        maxDepth = 0;
+        error = EvalError.NONE;
+        mismatch = -1;
+
+        int n;
+        while (mismatch < 0 && (n = in.read(buffer)) >= 0) {
+            for (int i = 0; i < n && mismatch < 0; i++) {
+                char c = buffer[i];
+                if (!ExpressionTokenizer.isWhitespace(c)) {
+                    token.append(c);
+                }
+                else if (token.length() > 0) {
+                    addToken();
+                    token.setLength(0);
+                }
+            }
+        }
+        if (mismatch < 0 && token.length() > 0) addToken();
+        if (mismatch >= 0) return result.fail(EvalError.MISMATCHED_PARENTHESIS, mismatch);
+
+        // Empty out the operator stack: an open bracket left on it is unmatched
+        for (int i = operators.size() - 1; i >= 0; i--) {
+            if (operators.get(i) < 0)
+                return result.fail(EvalError.MISMATCHED_PARENTHESIS, operatorPositions.get(i));
+        }
+        while (!operators.isEmpty())
+            apply(operators.pop(), 0.0, operatorPositions.pop());
+
+        if (error != EvalError.NONE) return result.fail(error, errorPosition);
+        // An empty expression is reported as an invalid token
+        if (operands.isEmpty()) return result.fail(EvalError.INVALID_TOKEN, -1);
+        if (operands.size() > 1) return result.fail(EvalError.TOO_MANY_OPERANDS, -1);
+
+        double value = operands.pop();
+        // Check for double overflow
+        if (value == Double.POSITIVE_INFINITY || value == Double.NEGATIVE_INFINITY)
+            return result.fail(EvalError.OVERFLOW, -1);
+        result.succeed(value);
+        return true;
+    }
+
+    // Evaluate the UTF-8 expression read from a channel
+    boolean evaluate(ReadableByteChannel in, EvalResult result) throws IOException
+    {
+        return evaluate(Channels.newReader(in, StandardCharsets.UTF_8), result);
+    }
+
+    // Number of tokens read by the last evaluation
+    long tokens()
+    {
+        return tokens;
+    }
+
+    // Deepest operator plus operand stack of the last evaluation
+    int maxDepth()
+    {
+        return maxDepth;
+    }
+
+    // SHUNTING-YARD STEP FOR THE TOKEN IN token (SEE CalculatorPanelEval.infixToRPN())
+    private void addToken()
+    {
+        ExpressionTokenizer.tokenize(token, scanned);
+        int code = scanned.code[0];
+        int position = (int) Math.min(tokens++, Integer.MAX_VALUE);
+
+        if (code >= 0) {
+            // Apply operators of higher precedence ('^' is right associative)
+            while (!operators.isEmpty()) {
+                int top = operators.peek();
+                if (top >= 0 && (top / 2 > code / 2 || (top / 2 == code / 2 && code != CalculatorPanelEval.POW)))
+                    apply(operators.pop(), 0.0, operatorPositions.pop());
+                else
+                    break;
+            }
+            operators.push(code);
+            operatorPositions.push(position);
+        }
+        else if (code == CalculatorPanelEval.OPEN_PAREN || code == CalculatorPanelEval.OPEN_BRACE) {
+            operators.push(code);
+            operatorPositions.push(position);
+        }
+        else if (code == CalculatorPanelEval.CLOSE_PAREN || code == CalculatorPanelEval.CLOSE_BRACE) {
+            // Until the matching bracket is on the stack, apply operators
+            while (!operators.isEmpty() && operators.peek() >= 0)
+                apply(operators.pop(), 0.0, operatorPositions.pop());
+            if (operators.isEmpty() || operators.peek() != code + 1) {
+                mismatch = position;
+                return;
+            }
+            operators.pop();
+            operatorPositions.pop();
+        }
+        else {
+            apply(code, scanned.value[0], position);
+        }
+        maxDepth = Math.max(maxDepth, operators.size() + operands.size());
+    }
+
+    // EVALUATION STEP FOR AN INSTRUCTION OF THE POSTFIX PROGRAM (SEE CalculatorPanelEval.evalRPN())
+    // After the first error, instructions are ignored.
+    private void apply(int code, double value, int position)
+    {
+        if (error != EvalError.NONE) return;
+
+        if (code == CalculatorPanelEval.NUMBER) {
+            operands.push(value);
+        }
+        else if (code >= CalculatorPanelEval.SUB && code <= CalculatorPanelEval.POW) {
+            if (operands.size() < 2) {
+                fail(EvalError.MISSING_OPERAND, position);
+                return;
+            }
+            double b = operands.pop();
+            if (code == CalculatorPanelEval.DIV && b == 0.0) {
+                fail(EvalError.DIVISION_BY_ZERO, position);
+                return;
+            }
+            operands.set(RpnOptimizer.applyBinary(code, operands.peek(), b));
+        }
+        else if (code >= CalculatorPanelEval.SIN) {
+            if (operands.isEmpty()) {
+                fail(EvalError.MISSING_FUNCTION_ARGUMENT, position);
+                return;
+            }
+            double x = operands.peek();
+            if (code == CalculatorPanelEval.COT && x == 0.0)
+                fail(EvalError.COT_OF_ZERO, position);
+            else if (code == CalculatorPanelEval.LN && x <= 0.0)
+                fail(EvalError.LN_DOMAIN, position);
+            else if (code == CalculatorPanelEval.LOG && x <= 0.0)
+                fail(EvalError.LOG_DOMAIN, position);
+            else
+                operands.set(RpnOptimizer.applyFunction(code, x));
+        }
+        else {
+            fail(EvalError.INVALID_TOKEN, position);
+        }
+    }
+
+    private void fail(EvalError evalError, int position)
+    {
+        error = evalError;
+        errorPosition = position;
+    }
+
+    public static void main(String[] args) throws IOException
+    {
+        if (args.length > 1 && args[0].equals("--generate")) {
+            long tokens = Long.parseLong(args[1]);
+            long seed = args.length > 2 ? Long.parseLong(args[2]) : 0;
+            int maxDepth = args.length > 3 ? Integer.parseInt(args[3]) : GiantExpressionWriter.DEFAULT_MAX_DEPTH;
+            Writer out = new BufferedWriter(new OutputStreamWriter(System.out, StandardCharsets.UTF_8), BUFFER_SIZE);
+            long written = new GiantExpressionWriter(seed, maxDepth).write(out, tokens);
+            out.flush();
+            System.err.println(written + " tokens written");
+            return;
+        }
+
+        StreamingEvaluator evaluator = new StreamingEvaluator();
+        EvalResult result = new EvalResult();
+        long start = System.nanoTime();
+        try (Reader in = args.length > 0 ? new FileReader(args[0], StandardCharsets.UTF_8)
+                : new InputStreamReader(System.in, StandardCharsets.UTF_8)) {
+            evaluator.evaluate(in, result);
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        System.out.println(result);
+        System.out.printf("%,d tokens in %.2f s (%,.0f tokens/s), deepest stack %d%n",
+                evaluator.tokens(), seconds, evaluator.tokens() / seconds, evaluator.maxDepth());
+    }
+}
@@ -0,0 +1,191 @@
+package calculatorpaneltest;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// Generates test expressions and compares the CalculatorPanel evaluator against the oracle on a
+// single thread. Each worker owns its evaluators, random generator, case log and statistics,
+// so that several workers can run in parallel without sharing any mutable state.
+//
+// Test case N of a run is generated from CaseRandom(seed, N), so it is the same whichever worker
+// runs it, and can be regenerated on its own (see CalculatorPanelTestClient --replay).
+final class TestWorker {
+
+    private final ExpressionGenerator generator = new ExpressionGenerator();
+
+    // Oracle Evaluator, reading the tokens of the case rather than tokenizing it again
+    private final TokenizedOracle evaluator = new TokenizedOracle();
+    // CalculatorPanel Evaluator
+    private final CalculatorPanelEval calcEval;
+    private final EvalResult calcResult = new EvalResult();
+
+    // Tokens of the current case, produced once and read by both evaluators
+    private final TokenBuffer tokens = new TokenBuffer();
+
+    private final long seed;
+    private final CaseRandom random;
+    private final CaseLog log;
+
+    // Number of mismatching case indices kept for the report
+    static final int MAX_MISMATCHES_KEPT = 10;
+
+    // Number of mismatching case indices kept (more when they are minimized after the run)
+    int mismatchesKept = MAX_MISMATCHES_KEPT;
+
+    // Persistent oracle answers shared with the other workers, looked up before evaluating with
+    // the oracle (null to always evaluate)
+    OracleCorpus oracleCorpus;
+    private final OracleCorpus.Answer oracleAnswer = new OracleCorpus.Answer();
+
+    // Per-phase timings of the worker's cases (null when disabled)
+    private PhaseMetrics metrics;
+
+    // stats: [0]=oracleCorrect, [1]=oracleExceptions, [2]=calcPanelCorrect,
+    // [3]=calcPanelErrors, [4]=wrongEval, [CALC_OUTCOMES + i]=calcPanel outcomes per EvalError
+    final long[] stats = new long[CalculatorPanelTestClient.STATS_LENGTH];
+
+    // Indices of the first mismatching cases
+    final List<Long> mismatches = new ArrayList<>();
+
+    // Details of the last case run, for replays
+    String lastExpression;
+    double lastOracleValue;
+    String lastOracleError;
+
+    TestWorker(long seed, CaseLog log)
+    {
+        this(seed, log, null);
+    }
+
+    // Worker whose calculator looks results up in a cache shared with the other workers (may be null)
+    TestWorker(long seed, CaseLog log, EvaluationCache cache)
+    {
+        this.calcEval = new CalculatorPanelEval(cache);
+        this.seed = seed;
+        this.random = new CaseRandom(seed, 0);
+        this.log = log;
+    }
+
+    // Regenerate test case index of the run with the given master seed
+    String generateCase(long caseSeed, long index)
+    {
+        random.reset(caseSeed, index);
+        generator.generateExpression(random);
+        return generator.expression.toString();
+    }
+
+    // GENERATE TEST CASE index AND COMPARE THE EVALUATIONS OF THE ORACLE AND THE CALCULATOR
+    // Returns true if the calculator and the oracle disagree on the result
+    boolean runCase(long index)
+    {
+        long start = metrics != null ? System.nanoTime() : 0;
+        random.reset(seed, index);
+        generator.generateExpression(random);
+        if (metrics != null) metrics.record(PhaseMetrics.Phase.GENERATE, start);
+
+        // The generator writes the evaluators' form as well: no need to format the expression
+        return runExpression(index, generator.expression.toString(), generator.formatted.toString());
+    }
+
+    // Record the time spent in each phase of the worker's cases into metrics (null to stop)
+    void setMetrics(PhaseMetrics metrics)
+    {
+        this.metrics = metrics;
+        calcEval.metrics = metrics;
+    }
+
+    PhaseMetrics metrics()
+    {
+        return metrics;
+    }
+
+    // COMPARE THE EVALUATIONS OF THE ORACLE AND THE CALCULATOR ON A GIVEN EXPRESSION
+    // (logged and counted as test case index)
+    boolean runExpression(long index, String expression)
+    {
+        // Format expression for evaluators
+        return runExpression(index, expression, format(expression));
+    }
+
+    // testExpr is expression formatted for the evaluators
+    private boolean runExpression(long index, String expression, String testExpr)
+    {
+        lastExpression = expression;
+
+        long tokenizeStart = metrics != null ? System.nanoTime() : 0;
+        ExpressionTokenizer.tokenize(testExpr, tokens);
+        if (metrics != null) metrics.record(PhaseMetrics.Phase.TOKENIZE, tokenizeStart);
+
+        // Compare results of different evaluators
+        // (Javaluator reports undefined results with an exception)
+        double r1 = 0;
+        lastOracleError = null;
+        if (oracleCorpus != null && oracleCorpus.lookup(testExpr, oracleAnswer))
+        {
+            // Answered by a previous run
+            r1 = oracleAnswer.value;
+            lastOracleError = oracleAnswer.error;
+        }
+        else
+        {
+            long start = metrics != null ? System.nanoTime() : 0;
+            try {
+                r1 = evaluator.evaluate(tokens);        // Oracle evaluator
+            } catch (IllegalArgumentException e)
+            {
+                lastOracleError = e.getMessage();
+                // Exceptions without a message are stored as an empty one
+                if (lastOracleError == null) lastOracleError = "";
+            }
+            if (metrics != null) metrics.record(PhaseMetrics.Phase.ORACLE, start);
+            if (oracleCorpus != null) oracleCorpus.add(testExpr, r1, lastOracleError);
+        }
+        boolean oracleEvaled = lastOracleError == null;
+        if (oracleEvaled) ++stats[0];
+        else              ++stats[1];     // Mathematically undefined result!
+        lastOracleValue = r1;
+
+        // Calculator evaluator, classified by error kind without exceptions
+        boolean calcEvaled = calcEval.tryEvaluate(tokens, calcResult);
+        if (calcEvaled) ++stats[2];
+        else            ++stats[3];     // Mathematically undefined result!
+        ++stats[CalculatorPanelTestClient.CALC_OUTCOMES + calcResult.error().ordinal()];
+
+        // Determine if the calculator returned the same value as the oracle
+        boolean mismatch = (oracleEvaled && calcEvaled) && (r1 != calcResult.value());
+        if (mismatch)
+        {
+            ++stats[4];
+            if (mismatches.size() < mismatchesKept) mismatches.add(index);
+        }
+
+        // Write case to the log
+        long start = metrics != null ? System.nanoTime() : 0;
+        log.write(index, lastExpression, !oracleEvaled, r1, calcResult, mismatch);
+        if (metrics != null)
+        {
+            metrics.record(PhaseMetrics.Phase.LOG, start);
+            metrics.countCase();
+        }
+        return mismatch;
+    }
+
+    // Format a generated expression for both evaluators: the oracle knows neither braces nor cot
+    static String format(String expression)
+    {
+        return expression.replace("{", "(").replace("}", ")")
+                .replace("cot", "1 / tan");
+    }
+
+    // Result of the calculator on the last case run
+    EvalResult lastCalcResult()
+    {
+        return calcResult;
+    }
+
+    // Tokens both evaluators read for the last case run (the formatted expression), reused by the next case
+    TokenBuffer lastTokens()
+    {
+        return tokens;
+    }
+}
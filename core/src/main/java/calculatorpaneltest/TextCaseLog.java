@@ -0,0 +1,60 @@
+package calculatorpaneltest;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+// CaseLog writing one generated expression per line, the original "calc_test_cases.txt" format
+final class TextCaseLog implements CaseLog {
+
+    private final PrintWriter writer;
+    // File the writer writes to, when the log can be synced for checkpoints (null otherwise)
+    private final FileChannel channel;
+
+    TextCaseLog(PrintWriter writer)
+    {
+        this.writer = writer;
+        this.channel = null;
+    }
+
+    // Log continuing file from its first offset bytes (the length recorded by a Checkpoint), or a new one
+    TextCaseLog(Path file, long offset) throws IOException
+    {
+        channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        if (channel.size() < offset) {
+            channel.close();
+            throw new IOException(file + " is shorter than its checkpoint");
+        }
+        channel.truncate(offset);
+        channel.position(offset);
+        writer = new PrintWriter(new BufferedWriter(Channels.newWriter(channel, StandardCharsets.UTF_8)));
+    }
+
+    @Override
+    public void write(long index, String expression, boolean oracleError, double oracleValue,
+                      EvalResult calcResult, boolean mismatch)
+    {
+        writer.println(expression);
+    }
+
+    @Override
+    public long sync() throws IOException
+    {
+        if (channel == null) return -1;
+        writer.flush();
+        if (writer.checkError()) throw new IOException("Writing the case log failed");
+        channel.force(false);
+        return channel.position();
+    }
+
+    @Override
+    public void close()
+    {
+        writer.close();
+    }
+}
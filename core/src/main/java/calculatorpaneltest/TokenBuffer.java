@@ -0,0 +1,109 @@
+package calculatorpaneltest;
+
+import java.util.Arrays;
+
+// Reusable, growable buffer of int-coded tokens, filled by ExpressionTokenizer and consumed by the
+// shunting-yard and RPN stages of CalculatorPanelEval.
+//
+// Each token has a code (see CalculatorPanelEval: operator index, NUMBER, VARIABLE, bracket or
+// INVALID), a value (the number for NUMBER tokens, the variable index for VARIABLE), its position
+// (index among the tokens of the source expression) and the [start, end) character range it was
+// read from.
+// A buffer holding postfix tokens doubles as the instruction array of a CompiledExpression.
+
+final class TokenBuffer {
+
+    int[] code;
+    double[] value;
+    int[] position;
+    int[] start;
+    int[] end;
+    int size;
+
+    // Text the tokens were read from, used to recover the text of a token when reporting errors
+    CharSequence source;
+
+    TokenBuffer()
+    {
+        this(16);
+    }
+
+    TokenBuffer(int capacity)
+    {
+        code = new int[capacity];
+        value = new double[capacity];
+        position = new int[capacity];
+        start = new int[capacity];
+        end = new int[capacity];
+    }
+
+    void clear(CharSequence source)
+    {
+        this.source = source;
+        size = 0;
+    }
+
+    void add(int tokenCode, double tokenValue, int tokenStart, int tokenEnd)
+    {
+        add(tokenCode, tokenValue, size, tokenStart, tokenEnd);
+    }
+
+    void add(int tokenCode, double tokenValue, int tokenPosition, int tokenStart, int tokenEnd)
+    {
+        if (size == code.length) grow();
+        code[size] = tokenCode;
+        value[size] = tokenValue;
+        position[size] = tokenPosition;
+        start[size] = tokenStart;
+        end[size] = tokenEnd;
+        size++;
+    }
+
+    // Append token i of another buffer, keeping its value and source position
+    void add(TokenBuffer from, int i)
+    {
+        add(from.code[i], from.value[i], from.position[i], from.start[i], from.end[i]);
+    }
+
+    // Remove token i, shifting the following tokens down
+    void remove(int i)
+    {
+        int count = size - i - 1;
+        System.arraycopy(code, i + 1, code, i, count);
+        System.arraycopy(value, i + 1, value, i, count);
+        System.arraycopy(position, i + 1, position, i, count);
+        System.arraycopy(start, i + 1, start, i, count);
+        System.arraycopy(end, i + 1, end, i, count);
+        size--;
+    }
+
+    // Text of token i as it appeared in the source
+    String text(int i)
+    {
+        return source.subSequence(start[i], end[i]).toString();
+    }
+
+    // Copy of this buffer trimmed to its size
+    TokenBuffer copy()
+    {
+        TokenBuffer copy = new TokenBuffer(Math.max(size, 1));
+        System.arraycopy(code, 0, copy.code, 0, size);
+        System.arraycopy(value, 0, copy.value, 0, size);
+        System.arraycopy(position, 0, copy.position, 0, size);
+        System.arraycopy(start, 0, copy.start, 0, size);
+        System.arraycopy(end, 0, copy.end, 0, size);
+        copy.size = size;
+        copy.source = source;
+        return copy;
+    }
+
+    private void grow()
+    {
+        int capacity = code.length * 2;
+        code = Arrays.copyOf(code, capacity);
+        value = Arrays.copyOf(value, capacity);
+        position = Arrays.copyOf(position, capacity);
+        start = Arrays.copyOf(start, capacity);
+        end = Arrays.copyOf(end, capacity);
+    }
+}
@@ -0,0 +1,94 @@
+package calculatorpaneltest;
+
+// Oracle evaluator: https://github.com/fathzer/javaluator
+import com.fathzer.soft.javaluator.*;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+// Javaluator's DoubleEvaluator reading the tokens ExpressionTokenizer produced for the calculator,
+// through its protected tokenize() hook, instead of splitting the whole expression again.
+//
+// Only tokens that any tokenizer reads the same are shared: operators, brackets, function names and
+// unsigned decimal numbers. Any other token (a signed literal such as "-3", "1e-5", an invalid token)
+// is split by Javaluator's own tokenizer, so that the oracle still reads "-3 ^ 2" with a unary minus,
+// as -9, and the calculator's reading of it as one number, 9, is reported as the mismatch it is.
+final class TokenizedOracle extends DoubleEvaluator {
+
+    // Text of operator and bracket tokens, by code - CLOSE_BRACE (other tokens are read from the source)
+    private static final String[] TEXT = new String[CalculatorPanelEval.LOG - CalculatorPanelEval.CLOSE_BRACE + 1];
+
+    static {
+        String[] operators = {"-", "+", "*", "/", "^", "^", "sin", "cos", "tan", "cot", "ln", "log"};
+        for (int code = 0; code < operators.length; code++)
+            TEXT[code - CalculatorPanelEval.CLOSE_BRACE] = operators[code];
+        TEXT[CalculatorPanelEval.OPEN_PAREN - CalculatorPanelEval.CLOSE_BRACE] = "(";
+        TEXT[CalculatorPanelEval.CLOSE_PAREN - CalculatorPanelEval.CLOSE_BRACE] = ")";
+        TEXT[CalculatorPanelEval.OPEN_BRACE - CalculatorPanelEval.CLOSE_BRACE] = "{";
+        TEXT[CalculatorPanelEval.CLOSE_BRACE - CalculatorPanelEval.CLOSE_BRACE] = "}";
+    }
+
+    private final Tokens iterator = new Tokens();
+    // Tokens of the expression being evaluated (null while evaluating a plain string)
+    private TokenBuffer tokens;
+
+    // EVALUATE THE EXPRESSION tokens WERE READ FROM, AS THOSE TOKENS
+    // Undefined results are reported with an IllegalArgumentException, as by evaluate(String).
+    double evaluate(TokenBuffer expression)
+    {
+        tokens = expression;
+        try {
+            return evaluate(expression.source.toString());
+        } finally {
+            tokens = null;
+        }
+    }
+
+    @Override
+    protected Iterator<String> tokenize(String expression)
+    {
+        if (tokens == null) return super.tokenize(expression);
+        iterator.next = 0;
+        iterator.split = null;
+        return iterator;
+    }
+
+    // Whether token i is a number made of digits and '.' only, which no tokenizer splits
+    private boolean unsigned(int i)
+    {
+        if (tokens.code[i] != CalculatorPanelEval.NUMBER) return false;
+        for (int c = tokens.start[i]; c < tokens.end[i]; c++) {
+            char ch = tokens.source.charAt(c);
+            if ((ch < '0' || ch > '9') && ch != '.') return false;
+        }
+        return true;
+    }
+
+    // Texts of the tokens, reused from one evaluation to the next
+    private final class Tokens implements Iterator<String> {
+        int next;
+        // Javaluator's tokens of the token being split, if any are left
+        Iterator<String> split;
+
+        @Override
+        public boolean hasNext()
+        {
+            return (split != null && split.hasNext()) || next < tokens.size;
+        }
+
+        @Override
+        public String next()
+        {
+            if (split != null && split.hasNext()) return split.next();
+            if (next >= tokens.size) throw new NoSuchElementException();
+            int i = next++;
+            int code = tokens.code[i];
+            if (code >= CalculatorPanelEval.CLOSE_BRACE && code != CalculatorPanelEval.NUMBER)
+                return TEXT[code - CalculatorPanelEval.CLOSE_BRACE];
+            String text = tokens.source.subSequence(tokens.start[i], tokens.end[i]).toString();
+            if (unsigned(i)) return text;
+            split = TokenizedOracle.super.tokenize(text);
+            return next();
+        }
+    }
+}
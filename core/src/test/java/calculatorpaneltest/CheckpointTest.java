@@ -0,0 +1,159 @@
+package calculatorpaneltest;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+// A checkpoint must come back exactly as saved, a damaged one must be refused, and a run killed and
+// resumed from its checkpoint must end with the statistics, mismatches and log of an uninterrupted run.
+public class CheckpointTest {
+
+    private static final long INTERVAL = 1_000_000_000L;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private Checkpoint saved(Path file) throws IOException
+    {
+        Checkpoint checkpoint = new Checkpoint(file, INTERVAL, 42, 1_000, 7_200_000_000_000L);
+        long[] stats = new long[CalculatorPanelTestClient.STATS_LENGTH];
+        for (int i = 0; i < stats.length; i++) stats[i] = 3L * i + 1;
+        checkpoint.save(500, 12_345, stats, List.of(3L, 17L, 499L));
+        return checkpoint;
+    }
+
+    @Test
+    public void saveAndLoad() throws IOException
+    {
+        Path file = folder.getRoot().toPath().resolve("run.checkpoint");
+        Checkpoint checkpoint = saved(file);
+        Checkpoint loaded = Checkpoint.load(file, INTERVAL);
+
+        assertEquals(42, loaded.seed);
+        assertEquals(1_000, loaded.cases);
+        assertEquals(7_200_000_000_000L, loaded.durationNanos);
+        assertEquals(500, loaded.nextCase);
+        assertEquals(checkpoint.elapsedNanos, loaded.elapsedNanos);
+        assertEquals(12_345, loaded.logOffset);
+        assertArrayEquals(checkpoint.stats, loaded.stats);
+        assertArrayEquals(new long[] {3, 17, 499}, loaded.mismatches);
+        // The rest of the --duration budget is left to the resumed run
+        assertEquals(loaded.durationNanos - loaded.elapsedNanos, loaded.remainingNanos());
+        // The temporary file was renamed over the checkpoint
+        assertFalse(Files.exists(file.resolveSibling("run.checkpoint.tmp")));
+    }
+
+    @Test
+    public void saveReplacesThePreviousCheckpoint() throws IOException
+    {
+        Path file = folder.getRoot().toPath().resolve("run.checkpoint");
+        Checkpoint checkpoint = saved(file);
+        checkpoint.save(600, 20_000, checkpoint.stats, List.of(3L));
+        Checkpoint loaded = Checkpoint.load(file, INTERVAL);
+        assertEquals(600, loaded.nextCase);
+        assertEquals(20_000, loaded.logOffset);
+        assertArrayEquals(new long[] {3}, loaded.mismatches);
+        assertEquals(1, folder.getRoot().list().length);
+    }
+
+    @Test
+    public void damagedCheckpointsAreRefused() throws IOException
+    {
+        Path file = folder.getRoot().toPath().resolve("run.checkpoint");
+        saved(file);
+        byte[] bytes = Files.readAllBytes(file);
+
+        // Any flipped bit fails the CRC
+        for (int i = 0; i < bytes.length; i++) {
+            byte[] corrupt = bytes.clone();
+            corrupt[i] ^= 1 << (i % 8);
+            Files.write(file, corrupt);
+            assertThrows(IOException.class, () -> Checkpoint.load(file, INTERVAL));
+        }
+        // So does a torn write, down to an empty file
+        for (int length = bytes.length - 1; length >= 0; length -= 7) {
+            try (RandomAccessFile raf = new RandomAccessFile(file.toFile(), "rw")) {
+                raf.setLength(length);
+            }
+            assertThrows(IOException.class, () -> Checkpoint.load(file, INTERVAL));
+        }
+    }
+
+    @Test
+    public void resumeOptionsComeFromTheCheckpoint()
+    {
+        for (String option : new String[] {"--seed", "--cases", "--duration"}) {
+            String value = option.equals("--duration") ? "2h" : "5";
+            assertThrows(IllegalArgumentException.class,
+                    () -> RunOptions.parse(new String[] {"--checkpoint", "cp", "--resume", option, value}));
+        }
+        assertTrue(RunOptions.parse(new String[] {"--checkpoint", "cp", "--resume"}).resume);
+    }
+
+    // Start the test client in directory, with the class path of the tests
+    private static Process client(File directory, String... args) throws IOException
+    {
+        String java = Path.of(System.getProperty("java.home"), "bin", "java").toString();
+        List<String> command = new ArrayList<>(List.of(java, "-cp", System.getProperty("java.class.path"),
+                CalculatorPanelTestClient.class.getName()));
+        command.addAll(List.of(args));
+        return new ProcessBuilder(command).directory(directory).redirectErrorStream(true)
+                .redirectOutput(new File(directory, "output.txt")).start();
+    }
+
+    private static void finish(Process process) throws InterruptedException
+    {
+        assertTrue("the test client did not finish", process.waitFor(120, TimeUnit.SECONDS));
+        assertEquals(0, process.exitValue());
+    }
+
+    @Test
+    public void killedAndResumedRunEqualsUninterruptedRun() throws Exception
+    {
+        String[] run = {"--cases", "100000", "--seed", "7", "--progress", "0",
+                "--checkpoint", "run.checkpoint", "--checkpoint-interval", "1"};
+
+        File uninterrupted = folder.newFolder("uninterrupted");
+        finish(client(uninterrupted, run));
+
+        // Kill the run (as a crash would, without its shutdown hook) once it has saved a checkpoint,
+        // slowed down so that it is still running then
+        File resumed = folder.newFolder("resumed");
+        Path file = resumed.toPath().resolve("run.checkpoint");
+        List<String> slowRun = new ArrayList<>(List.of(run));
+        slowRun.addAll(List.of("--rate", "20000"));
+        Process process = client(resumed, slowRun.toArray(new String[0]));
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(60);
+        while (!Files.exists(file) && process.isAlive() && System.nanoTime() < deadline)
+            Thread.sleep(5);
+        process.destroyForcibly().waitFor();
+        Checkpoint killedAt = Checkpoint.load(file, INTERVAL);
+        assertTrue("killed after the whole run", killedAt.nextCase < 100_000);
+
+        finish(client(resumed, "--checkpoint", "run.checkpoint", "--resume", "--progress", "0"));
+
+        Checkpoint expected = Checkpoint.load(uninterrupted.toPath().resolve("run.checkpoint"), INTERVAL);
+        Checkpoint actual = Checkpoint.load(file, INTERVAL);
+        assertEquals(100_000, actual.nextCase);
+        assertArrayEquals(expected.stats, actual.stats);
+        assertArrayEquals(expected.mismatches, actual.mismatches);
+        assertEquals(expected.logOffset, actual.logOffset);
+        assertArrayEquals(Files.readAllBytes(uninterrupted.toPath().resolve("calc_test_cases.txt")),
+                Files.readAllBytes(resumed.toPath().resolve("calc_test_cases.txt")));
+    }
+}
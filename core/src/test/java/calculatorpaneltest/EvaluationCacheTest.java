@@ -0,0 +1,140 @@
+package calculatorpaneltest;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+// The cache must answer exactly as tryEvaluate() without it, count every lookup as a hit or a miss,
+// keep its weighted size under the byte cap by evicting, and admit a new entry only if it is more
+// frequent than the entry it would evict (TinyLFU), so that one-off expressions cannot flush hot ones.
+public class EvaluationCacheTest {
+
+    private static void assertSameResult(String message, EvalResult expected, EvalResult actual)
+    {
+        message += ": " + expected + " / " + actual;
+        assertEquals(message, expected.error(), actual.error());
+        assertEquals(message, expected.position(), actual.position());
+        if (!expected.isError())
+            assertEquals(message, Double.doubleToLongBits(expected.value()), Double.doubleToLongBits(actual.value()));
+    }
+
+    @Test
+    public void hitAndMissCounts()
+    {
+        EvaluationCache cache = new EvaluationCache(1L << 20);
+        CalculatorPanelEval cached = new CalculatorPanelEval(cache);
+        CalculatorPanelEval plain = new CalculatorPanelEval();
+        EvalResult expected = new EvalResult(), actual = new EvalResult();
+
+        // Variants with the same normalized tokens share an entry: braces are brackets, and numbers
+        // are compared by value
+        String[][] lookups = {
+                {"( 1 + 2 ) * 3", "miss"}, {"( 1 + 2 ) * 3", "hit"}, {"{ 1 + 2 } * 3", "hit"},
+                {"( 1.0 + 002 ) * 3e0", "hit"}, {"2.50 / 0", "miss"}, {"2.5 / 0", "hit"},
+                {"ln ( 0 - 1 )", "miss"}, {"ln ( 0 - 1 )", "hit"}, {"1 2 +", "miss"}, {"1 2 +", "hit"},
+                {"( 1 + 2 ) * 4", "miss"}};
+        long hits = 0, misses = 0;
+        for (String[] lookup : lookups) {
+            if (lookup[1].equals("hit")) hits++; else misses++;
+            plain.tryEvaluate(lookup[0], expected);
+            cached.tryEvaluate(lookup[0], actual);
+            assertSameResult(lookup[0], expected, actual);
+            assertEquals(lookup[0], hits, cache.hits());
+            assertEquals(lookup[0], misses, cache.misses());
+        }
+        assertEquals(5, cache.size());
+        assertEquals(6.0 / 11, cache.hitRate(), 1e-9);
+
+        // Mismatched brackets are not looked up at all
+        cached.tryEvaluate("( 1 + 2", actual);
+        cached.tryEvaluate("( 1 } + 2", actual);
+        assertEquals(hits, cache.hits());
+        assertEquals(misses, cache.misses());
+    }
+
+    @Test
+    public void generatedCasesAnswerAsWithoutTheCache()
+    {
+        // Small enough to evict, and every case looked up twice so that the second may be a hit
+        EvaluationCache cache = new EvaluationCache(64 << 10);
+        CalculatorPanelEval cached = new CalculatorPanelEval(cache);
+        CalculatorPanelEval plain = new CalculatorPanelEval();
+        EvalResult expected = new EvalResult(), actual = new EvalResult();
+        ExpressionGenerator generator = new ExpressionGenerator();
+        CaseRandom random = new CaseRandom(0, 0);
+        for (long i = 0; i < 4_000; i++) {
+            random.reset(0, i % 2_000);
+            generator.generateExpression(random);
+            String expr = generator.formatted.toString();
+            plain.tryEvaluate(expr, expected);
+            cached.tryEvaluate(expr, actual);
+            assertSameResult(expr, expected, actual);
+        }
+        assertTrue(cache.toString(), cache.hits() > 0);
+        assertTrue(cache.toString(), cache.evictions() > 0);
+    }
+
+    @Test
+    public void evictionKeepsSegmentsUnderTheByteCap()
+    {
+        long maxBytes = 16 << 10;
+        EvaluationCache cache = new EvaluationCache(maxBytes);
+        CalculatorPanelEval cached = new CalculatorPanelEval(cache);
+        EvalResult result = new EvalResult();
+        // Each expression is looked up twice in a row, so that it is always more frequent than the
+        // least recently used entry of a full segment and gets admitted over it
+        for (int i = 0; i < 5_000; i++) {
+            String expr = i + " * 2 + 1";
+            cached.tryEvaluate(expr, result);
+            cached.tryEvaluate(expr, result);
+            assertTrue(cache.toString(), cache.weightedSize() <= maxBytes);
+        }
+        assertTrue(cache.toString(), cache.evictions() > 0);
+        assertTrue(cache.toString(), cache.weightedSize() > maxBytes / 2);
+        assertEquals(10_000, cache.hits() + cache.misses());
+
+        // An entry heavier than a whole segment is never stored
+        StringBuilder giant = new StringBuilder("1");
+        for (int i = 0; i < 200; i++) giant.append(" + 1");
+        long size = cache.size(), misses = cache.misses();
+        cached.tryEvaluate(giant.toString(), result);
+        cached.tryEvaluate(giant.toString(), result);
+        assertEquals(size, cache.size());
+        assertEquals(misses + 2, cache.misses());
+    }
+
+    @Test
+    public void frequentEntriesSurviveOneOffLookups()
+    {
+        // Room for all the hot expressions, whichever segments they fall in
+        EvaluationCache cache = new EvaluationCache(64 << 10);
+        CalculatorPanelEval cached = new CalculatorPanelEval(cache);
+        EvalResult result = new EvalResult();
+
+        // A few hot expressions, each looked up several times
+        int hot = 20;
+        for (int round = 0; round < 5; round++)
+            for (int i = 0; i < hot; i++)
+                cached.tryEvaluate(i + " - 7", result);
+        assertEquals(hot, cache.misses());
+        assertEquals(hot, cache.size());
+
+        // A scan of expressions seen once each fills the segments, then is mostly refused admission:
+        // it may evict other one-off entries, but never the hot ones
+        for (int i = 0; i < 1_000; i++)
+            cached.tryEvaluate(i + " / 3", result);
+        assertTrue(cache.toString(), cache.rejections() > cache.evictions());
+
+        long hits = cache.hits();
+        for (int i = 0; i < hot; i++)
+            cached.tryEvaluate(i + " - 7", result);
+        assertEquals(cache.toString(), hits + hot, cache.hits());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void capMustBePositive()
+    {
+        new EvaluationCache(0);
+    }
+}
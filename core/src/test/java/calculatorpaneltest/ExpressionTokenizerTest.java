@@ -0,0 +1,201 @@
+package calculatorpaneltest;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.Stack;
+
+import org.junit.Test;
+
+// ExpressionTokenizer and the token-based infixToRPN() replaced String.split("\\s") and string
+// comparisons: they must read every expression exactly as the string-based code did.
+public class ExpressionTokenizerTest {
+
+    private static final String[] OPS_PRECEDENCE = {"-", "+", "*", "/", "^", "^",
+            "sin", "cos", "tan", "cot", "ln", "log"};
+
+    // Tokens the random expressions are made of: operators, brackets, and number literals that
+    // Double.parseDouble() reads, rejects, or that need more precision than the fast path has
+    private static final String[] WORDS = {"-", "+", "*", "/", "^", "sin", "cos", "tan", "cot", "ln", "log",
+            "(", ")", "{", "}", "0", "-0", "1", "-1", "42", "3.25", "-7.5", "1.", ".5", "+3", "00012",
+            "1e3", "-2.5E-3", "0x1p3", "1d", "2f", "NaN", "-Infinity", "Infinity", "12345678901234567890",
+            "0.1000000000000000055511151231257827", "9007199254740993", "1.7976931348623157e308", "4.9e-324",
+            "-", ".", "-.", "1.2.3", "1-2", "1_0", "x", "sinx", "Sin", "(1", "e5", "ln(", "\u00e9"};
+
+    private static final String[] SPACES = {" ", " ", " ", "  ", "\t", "\n", "\u000B", "\f", "\r", " \r\n "};
+
+    // BASELINE: the string-based infixToRPN() the token version replaced
+    private static String baselineInfixToRPN(String infix)
+    {
+        ArrayList<String> opsPrecedence = new ArrayList<>(Arrays.asList(OPS_PRECEDENCE));
+        StringBuilder postfix = new StringBuilder();
+        Stack<Integer> s = new Stack<>();
+
+        for (String token : infix.split("\\s")) {
+            if (token.isEmpty())
+                continue;
+            int idx = opsPrecedence.indexOf(token);
+
+            if (idx != -1) {
+                while (!s.isEmpty()) {
+                    int prec2 = s.peek() / 2;
+                    int prec1 = idx / 2;
+                    if (prec2 > prec1 || (prec2 == prec1 && !token.equals("^"))) {
+                        postfix.append(opsPrecedence.get(s.pop())).append(" ");
+                    } else {
+                        break;
+                    }
+                }
+                s.push(idx);
+            }
+            else if (token.equals("(")) {
+                s.push(-2);
+            }
+            else if (token.equals("{")) {
+                s.push(-4);
+            }
+            else if (token.equals(")")) {
+                while (s.peek() != -2) {
+                    if (s.peek() == -4) return "Error: Mismatched parenthesis";
+                    postfix.append(opsPrecedence.get(s.pop())).append(" ");
+                }
+                s.pop();
+            }
+            else if (token.equals("}")) {
+                while (s.peek() != -4) {
+                    if (s.peek() == -2) return "Error: Mismatched parenthesis";
+                    postfix.append(opsPrecedence.get(s.pop())).append(" ");
+                }
+                s.pop();
+            }
+            else {
+                postfix.append(token).append(' ');
+            }
+        }
+        while (!s.isEmpty())
+            postfix.append(opsPrecedence.get(s.pop())).append(' ');
+        return postfix.toString();
+    }
+
+    // The baseline's answer, where running into an unmatched bracket (an empty stack, or a bracket
+    // marker popped as an operator) counts as the mismatch it is
+    private static String baseline(String infix)
+    {
+        try {
+            return baselineInfixToRPN(infix);
+        } catch (RuntimeException e) {
+            return EvalError.MISMATCHED_PARENTHESIS.message();
+        }
+    }
+
+    private static void assertSameTokens(String expr)
+    {
+        TokenBuffer tokens = new TokenBuffer();
+        ExpressionTokenizer.tokenize(expr, tokens);
+
+        int i = 0;
+        for (String word : expr.split("\\s")) {
+            if (word.isEmpty()) continue;
+            String message = "\"" + expr + "\", token " + i;
+            assertEquals(message, word, tokens.text(i));
+            assertEquals(message, i, tokens.position[i]);
+
+            int operator = Arrays.asList(OPS_PRECEDENCE).indexOf(word);
+            if (operator >= 0) {
+                assertEquals(message, operator, tokens.code[i]);
+            }
+            else if ("(){}".contains(word)) {
+                int[] codes = {CalculatorPanelEval.OPEN_PAREN, CalculatorPanelEval.CLOSE_PAREN,
+                        CalculatorPanelEval.OPEN_BRACE, CalculatorPanelEval.CLOSE_BRACE};
+                assertEquals(message, codes["(){}".indexOf(word)], tokens.code[i]);
+            }
+            else {
+                try {
+                    double value = Double.parseDouble(word);
+                    assertEquals(message, CalculatorPanelEval.NUMBER, tokens.code[i]);
+                    assertEquals(message, Double.doubleToLongBits(value), Double.doubleToLongBits(tokens.value[i]));
+                } catch (NumberFormatException e) {
+                    assertEquals(message, CalculatorPanelEval.INVALID, tokens.code[i]);
+                }
+            }
+            i++;
+        }
+        assertEquals(expr, i, tokens.size);
+    }
+
+    private static void assertSameAsBaseline(String expr)
+    {
+        assertSameTokens(expr);
+        assertEquals(expr, baseline(expr), CalculatorPanelEval.infixToRPN(expr));
+    }
+
+    @Test
+    public void operatorsAndBrackets()
+    {
+        assertSameAsBaseline("1 + 2 * 3 - 4 / 5");
+        assertSameAsBaseline("2 ^ 3 ^ 2");
+        assertSameAsBaseline("sin ( cos ( 1 ) ) * cot ( 2 ) + ln ( 3 ) - log ( 4 ) / tan ( 5 )");
+        assertSameAsBaseline("{ 1 + ( 2 - 3 ) } * 4");
+        assertSameAsBaseline("( 0 - 1 ) *  5 ^ 2");
+        assertSameAsBaseline("");
+        assertSameAsBaseline("   ");
+    }
+
+    @Test
+    public void mismatchedBrackets()
+    {
+        for (String expr : new String[] {"( 1 + 2", "1 + 2 )", "( 1 }", "{ 1 )", ") (", "( ( 1 )", "} 1 {"}) {
+            assertSameAsBaseline(expr);
+            assertEquals(expr, EvalError.MISMATCHED_PARENTHESIS.message(), CalculatorPanelEval.infixToRPN(expr));
+        }
+    }
+
+    @Test
+    public void numberLiterals()
+    {
+        for (String word : WORDS)
+            assertSameTokens(word + " " + word);
+        assertSameTokens("0.30000000000000004 123456789012345678 1e-400 -1e400 0.000000000000000000000001");
+    }
+
+    @Test
+    public void whitespace()
+    {
+        assertSameAsBaseline("1\t+\n2\u000B*\f3\r-\r\n4");
+        // Characters \s does not match stay inside tokens
+        assertSameAsBaseline("1\u00a0+ 2");
+        assertSameAsBaseline("1\u2003+ 2");
+    }
+
+    @Test
+    public void generatedCases()
+    {
+        ExpressionGenerator generator = new ExpressionGenerator();
+        CaseRandom random = new CaseRandom(0, 0);
+        for (long i = 0; i < 5_000; i++) {
+            random.reset(0, i);
+            generator.generateExpression(random);
+            assertSameAsBaseline(generator.expression.toString());
+            assertSameAsBaseline(generator.formatted.toString());
+        }
+    }
+
+    @Test
+    public void randomTokens()
+    {
+        Random random = new Random(1);
+        StringBuilder expr = new StringBuilder();
+        for (int i = 0; i < 20_000; i++) {
+            expr.setLength(0);
+            int length = random.nextInt(12);
+            for (int t = 0; t < length; t++) {
+                if (t > 0 || random.nextBoolean()) expr.append(SPACES[random.nextInt(SPACES.length)]);
+                expr.append(WORDS[random.nextInt(WORDS.length)]);
+            }
+            if (random.nextBoolean()) expr.append(SPACES[random.nextInt(SPACES.length)]);
+            assertSameAsBaseline(expr.toString());
+        }
+    }
+}
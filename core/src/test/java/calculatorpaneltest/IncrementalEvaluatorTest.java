@@ -0,0 +1,149 @@
+package calculatorpaneltest;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+// IncrementalEvaluator.result() must give what tryEvaluate() gives for the tokens typed so far, after
+// any sequence of appends, backspaces and restores: the same value (bit for bit), or the same error
+// at the same token position.
+public class IncrementalEvaluatorTest {
+
+    private final CalculatorPanelEval calcEval = new CalculatorPanelEval();
+
+    // Compare the preview of evaluator with tryEvaluate() on the first n tokens of words
+    private void assertSameAsTryEvaluate(IncrementalEvaluator evaluator, List<String> words, int n)
+    {
+        String expr = String.join(" ", words.subList(0, n));
+        EvalResult expected = new EvalResult(), actual = new EvalResult();
+        calcEval.tryEvaluate(expr, expected);
+        evaluator.result(actual);
+
+        String message = "\"" + expr + "\": " + expected + " / " + actual;
+        assertEquals(message, n, evaluator.size());
+        assertEquals(message, expected.error(), actual.error());
+        assertEquals(message, expected.position(), actual.position());
+        if (!expected.isError())
+            assertEquals(message, Double.doubleToLongBits(expected.value()), Double.doubleToLongBits(actual.value()));
+    }
+
+    // Type words one by one, checking the preview after each
+    private void assertTyped(String expr)
+    {
+        List<String> words = List.of(expr.trim().split("\\s+"));
+        IncrementalEvaluator evaluator = new IncrementalEvaluator();
+        assertSameAsTryEvaluate(evaluator, words, 0);
+        for (int n = 1; n <= words.size(); n++) {
+            evaluator.append(words.get(n - 1));
+            assertSameAsTryEvaluate(evaluator, words, n);
+        }
+        // Then erase them one by one
+        for (int n = words.size() - 1; n >= 0; n--) {
+            evaluator.backspace();
+            assertSameAsTryEvaluate(evaluator, words, n);
+        }
+    }
+
+    @Test
+    public void typedExpressions()
+    {
+        for (String expr : new String[] {"1 + 2 * 3 - 4 / 5", "2 ^ 3 ^ 2", "( 1 + 2 ) * 3", "{ 1 + ( 2 - 3 ) } * 4",
+                "sin ( cos ( 1 ) ) * cot ( 2 ) + ln ( 3 ) - log ( 4 ) / tan ( 5 )", "sin cos ln 2 + 3",
+                "1 / 0 + 2", "ln ( 0 - 1 ) * 2", "cot ( 0 ) ^ 2", "1 2 +", "+ 1", "1 +", "( 1 + 2", "1 + 2 )",
+                "( 1 } + 2", "x + 1", "1e308 * 10", "2 ^ 0.5 ^ 3 * 4 ^ ( 1 - 2 ) ^ 2"})
+            assertTyped(expr);
+    }
+
+    @Test
+    public void mismatchedBracketHidesLaterTokens()
+    {
+        IncrementalEvaluator evaluator = new IncrementalEvaluator();
+        List<String> words = List.of("( 1 ) ) + ( ( 2 ".split(" "));
+        for (int n = 1; n <= words.size(); n++) {
+            evaluator.append(words.get(n - 1));
+            assertSameAsTryEvaluate(evaluator, words, n);
+        }
+    }
+
+    @Test
+    public void snapshotAndRestore()
+    {
+        List<String> words = List.of("2 ^ ( 3 - 1 ) ^ 2 + ln ( 4 ) / 0 - 5".split(" "));
+        IncrementalEvaluator evaluator = new IncrementalEvaluator();
+        for (int mark = 0; mark <= words.size(); mark++) {
+            evaluator.clear();
+            for (int n = 0; n < mark; n++)
+                evaluator.append(words.get(n));
+            int snapshot = evaluator.snapshot();
+            for (int n = mark; n < words.size(); n++)
+                evaluator.append(words.get(n));
+            assertSameAsTryEvaluate(evaluator, words, words.size());
+            evaluator.restore(snapshot);
+            assertSameAsTryEvaluate(evaluator, words, mark);
+        }
+    }
+
+    @Test
+    public void longPowerChain()
+    {
+        // The chain stays pending to the end: every preview applies all of it
+        List<String> words = new ArrayList<>();
+        IncrementalEvaluator evaluator = new IncrementalEvaluator();
+        for (int i = 0; i < 2_000; i++) {
+            String word = i % 2 == 1 ? "^" : i % 6 == 0 ? "1.0001" : i % 6 == 2 ? "0.5" : "2";
+            words.add(word);
+            evaluator.append(word);
+            if (i % 97 == 0 || i > 1_990) assertSameAsTryEvaluate(evaluator, words, words.size());
+        }
+        for (int i = 0; i < 10; i++) {
+            evaluator.backspace();
+            words.remove(words.size() - 1);
+            assertSameAsTryEvaluate(evaluator, words, words.size());
+        }
+    }
+
+    @Test
+    public void generatedCasesWithRandomEdits()
+    {
+        ExpressionGenerator generator = new ExpressionGenerator();
+        CaseRandom caseRandom = new CaseRandom(0, 0);
+        Random random = new Random(1);
+        IncrementalEvaluator evaluator = new IncrementalEvaluator();
+        List<String> words = new ArrayList<>();
+        for (long i = 0; i < 2_000; i++) {
+            caseRandom.reset(0, i);
+            generator.generateExpression(caseRandom);
+            List<String> expr = List.of(generator.formatted.toString().trim().split("\\s+"));
+            evaluator.clear();
+            words.clear();
+            int snapshot = -1;
+            List<String> atSnapshot = null;
+            // Type the case with typos: a random word appended, then erased again
+            for (String word : expr) {
+                if (random.nextInt(4) == 0) {
+                    String typo = expr.get(random.nextInt(expr.size()));
+                    evaluator.append(typo);
+                    words.add(typo);
+                    assertSameAsTryEvaluate(evaluator, words, words.size());
+                    evaluator.backspace();
+                    words.remove(words.size() - 1);
+                }
+                if (snapshot < 0 && random.nextInt(8) == 0) {
+                    snapshot = evaluator.snapshot();
+                    atSnapshot = new ArrayList<>(words);
+                }
+                evaluator.append(word);
+                words.add(word);
+                assertSameAsTryEvaluate(evaluator, words, words.size());
+            }
+            if (snapshot >= 0) {
+                evaluator.restore(snapshot);
+                assertSameAsTryEvaluate(evaluator, atSnapshot, atSnapshot.size());
+            }
+        }
+    }
+}
@@ -0,0 +1,154 @@
+package calculatorpaneltest;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+// A minimized expression must still mismatch, and be 1-minimal: removing any one token, or any one
+// pair of matching brackets, makes the mismatch go away. Brackets only ever go in pairs, so the
+// minimized form of a balanced expression is balanced too.
+public class MismatchMinimizerTest {
+
+    private static MismatchMinimizer minimizer;
+
+    private final TokenizedOracle oracle = new TokenizedOracle();
+    private final CalculatorPanelEval calcEval = new CalculatorPanelEval();
+    private final EvalResult result = new EvalResult();
+    private final TokenBuffer tokens = new TokenBuffer();
+
+    @BeforeClass
+    public static void startMinimizer()
+    {
+        minimizer = new MismatchMinimizer(4);
+    }
+
+    @AfterClass
+    public static void closeMinimizer()
+    {
+        minimizer.close();
+    }
+
+    // The comparison TestWorker.runExpression() makes
+    private boolean mismatches(List<String> words)
+    {
+        ExpressionTokenizer.tokenize(TestWorker.format(String.join(" ", words)), tokens);
+        double r1;
+        try {
+            r1 = oracle.evaluate(tokens);
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+        return calcEval.tryEvaluate(tokens, result) && r1 != result.value();
+    }
+
+    private static boolean isOpening(String word)
+    {
+        return word.equals("(") || word.equals("{");
+    }
+
+    private static boolean isClosing(String word)
+    {
+        return word.equals(")") || word.equals("}");
+    }
+
+    // Index of the bracket closing the one opened at i, or -1
+    private static int closingBracket(List<String> words, int i)
+    {
+        int depth = 0;
+        for (int j = i; j < words.size(); j++) {
+            if (isOpening(words.get(j))) depth++;
+            else if (isClosing(words.get(j)) && --depth == 0) return j;
+        }
+        return -1;
+    }
+
+    private static boolean balanced(List<String> words)
+    {
+        int depth = 0;
+        for (String word : words) {
+            if (isOpening(word)) depth++;
+            else if (isClosing(word) && --depth < 0) return false;
+        }
+        return depth == 0;
+    }
+
+    private static List<String> without(List<String> words, int... indexes)
+    {
+        List<String> result = new ArrayList<>(words);
+        Arrays.sort(indexes);
+        for (int k = indexes.length - 1; k >= 0; k--) result.remove(indexes[k]);
+        return result;
+    }
+
+    private void assertMinimized(String expression)
+    {
+        List<String> original = List.of(expression.trim().split("\\s+"));
+        String minimized = minimizer.minimize(expression);
+        List<String> words = List.of(minimized.split(" "));
+        String message = "\"" + expression + "\" -> \"" + minimized + "\"";
+
+        assertTrue(message, mismatches(words));
+        assertTrue(message, words.size() <= original.size());
+        if (balanced(original)) assertTrue(message, balanced(words));
+
+        // 1-minimal: no single token, nor bracket pair, can go
+        for (int i = 0; i < words.size(); i++) {
+            String word = words.get(i);
+            if (isClosing(word)) continue;
+            List<String> smaller = isOpening(word) ? without(words, i, closingBracket(words, i)) : without(words, i);
+            assertFalse(message + " without token " + i, mismatches(smaller));
+        }
+    }
+
+    @Test
+    public void generatedMismatches()
+    {
+        ExpressionGenerator generator = new ExpressionGenerator();
+        CaseRandom random = new CaseRandom(0, 0);
+        int found = 0;
+        for (long i = 0; found < 40; i++) {
+            random.reset(0, i);
+            generator.generateExpression(random);
+            String expression = generator.formatted.toString();
+            if (!mismatches(List.of(expression.trim().split("\\s+")))) continue;
+            assertMinimized(expression);
+            found++;
+        }
+    }
+
+    @Test
+    public void bracketsAreStrippedInPairs()
+    {
+        String expression = generatedMismatch();
+        assertMinimized("( { ( " + expression + " ) } )");
+        assertMinimized("( 1 + 2 ) * { " + expression + " } - ( 3 )");
+    }
+
+    @Test
+    public void expressionsThatAgreeAreKept()
+    {
+        for (String expression : new String[] {"1 + 2 * 3", "( 1 + 2", "ln ( 0 - 1 )", "x"})
+            assertEquals(expression, minimizer.minimize(expression));
+    }
+
+    // The first generated case that mismatches
+    private String generatedMismatch()
+    {
+        ExpressionGenerator generator = new ExpressionGenerator();
+        CaseRandom random = new CaseRandom(0, 0);
+        for (long i = 0; ; i++) {
+            random.reset(0, i);
+            generator.generateExpression(random);
+            String expression = generator.formatted.toString();
+            if (mismatches(List.of(expression.trim().split("\\s+")))) return expression;
+        }
+    }
+}
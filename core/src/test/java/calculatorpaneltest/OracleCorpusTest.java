@@ -0,0 +1,169 @@
+package calculatorpaneltest;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+// A corpus must answer after being closed and reopened exactly as before, and its records are the
+// reference: when the index is missing, or stale and the last record torn by a crash, reopening
+// rebuilds the index from the intact records and drops the torn one.
+public class OracleCorpusTest {
+
+    // Offset of the first record, after the header of the records file
+    private static final long FIRST_RECORD = 16;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static String expression(int i)
+    {
+        return "( " + i + " + 1 ) / 3";
+    }
+
+    // Every seventh expression gets an error instead of a value
+    private static String error(int i)
+    {
+        return i % 7 == 0 ? "Error " + i : null;
+    }
+
+    private static int recordSize(int i)
+    {
+        int size = 1 + 4 + expression(i).getBytes(StandardCharsets.UTF_8).length + 1 + 8;
+        return error(i) == null ? size : size + 4 + error(i).getBytes(StandardCharsets.UTF_8).length;
+    }
+
+    private static void add(OracleCorpus corpus, int from, int to)
+    {
+        for (int i = from; i < to; i++)
+            corpus.add(expression(i), i / 3.0, error(i));
+    }
+
+    private static void assertAnswers(OracleCorpus corpus, int from, int to)
+    {
+        OracleCorpus.Answer answer = new OracleCorpus.Answer();
+        for (int i = from; i < to; i++) {
+            assertTrue(expression(i), corpus.lookup(expression(i), answer));
+            assertEquals(expression(i), Double.doubleToLongBits(i / 3.0), Double.doubleToLongBits(answer.value));
+            assertEquals(expression(i), error(i), answer.error);
+        }
+    }
+
+    @Test
+    public void reopenKeepsTheAnswers() throws IOException
+    {
+        Path file = folder.getRoot().toPath().resolve("oracle.corpus");
+        // More records than the initial index holds, so that it grows
+        try (OracleCorpus corpus = new OracleCorpus(file)) {
+            assertFalse(corpus.discarded);
+            add(corpus, 0, 5_000);
+            add(corpus, 0, 10);
+            assertEquals(5_000, corpus.size());
+            assertAnswers(corpus, 0, 5_000);
+        }
+
+        try (OracleCorpus corpus = new OracleCorpus(file)) {
+            assertFalse(corpus.discarded);
+            assertEquals(5_000, corpus.size());
+            assertAnswers(corpus, 0, 5_000);
+            OracleCorpus.Answer answer = new OracleCorpus.Answer();
+            assertFalse(corpus.lookup(expression(5_000), answer));
+            assertEquals(5_000, corpus.hits());
+            assertEquals(1, corpus.misses());
+        }
+    }
+
+    @Test
+    public void deletedIndexIsRebuilt() throws IOException
+    {
+        Path file = folder.getRoot().toPath().resolve("oracle.corpus");
+        try (OracleCorpus corpus = new OracleCorpus(file)) {
+            add(corpus, 0, 3_000);
+        }
+        Files.delete(Path.of(file + ".idx"));
+
+        try (OracleCorpus corpus = new OracleCorpus(file)) {
+            assertFalse(corpus.discarded);
+            assertEquals(3_000, corpus.size());
+            assertAnswers(corpus, 0, 3_000);
+        }
+    }
+
+    @Test
+    public void tornTailIsDroppedWhenTheIndexIsRebuilt() throws IOException
+    {
+        Path file = folder.getRoot().toPath().resolve("oracle.corpus");
+        Path indexFile = Path.of(file + ".idx");
+        Path savedIndex = folder.getRoot().toPath().resolve("saved.idx");
+        int last = 700;
+        try (OracleCorpus corpus = new OracleCorpus(file)) {
+            add(corpus, 0, last);
+        }
+        Files.copy(indexFile, savedIndex);
+        try (OracleCorpus corpus = new OracleCorpus(file)) {
+            add(corpus, last, last + 1);
+        }
+
+        // A crash with the last record only partly on disk (its message length torn), and the index
+        // as it was before that record was appended
+        assertTrue(error(last) != null);
+        long offset = FIRST_RECORD;
+        for (int i = 0; i < last; i++) offset += recordSize(i);
+        long messageLength = offset + 1 + 4 + expression(last).getBytes(StandardCharsets.UTF_8).length + 1 + 8;
+        try (RandomAccessFile raf = new RandomAccessFile(file.toFile(), "rw")) {
+            raf.seek(messageLength);
+            raf.writeInt(Integer.MAX_VALUE);
+        }
+        Files.copy(savedIndex, indexFile, StandardCopyOption.REPLACE_EXISTING);
+
+        try (OracleCorpus corpus = new OracleCorpus(file)) {
+            assertFalse(corpus.discarded);
+            assertEquals(last, corpus.size());
+            assertAnswers(corpus, 0, last);
+            assertFalse(corpus.lookup(expression(last), new OracleCorpus.Answer()));
+            // The next records overwrite the torn one
+            add(corpus, last, last + 100);
+        }
+
+        try (OracleCorpus corpus = new OracleCorpus(file)) {
+            assertEquals(last + 100, corpus.size());
+            assertAnswers(corpus, 0, last + 100);
+        }
+    }
+
+    @Test
+    public void corpusOfAnotherOracleIsDiscarded() throws IOException
+    {
+        Path file = folder.getRoot().toPath().resolve("oracle.corpus");
+        try (OracleCorpus corpus = new OracleCorpus(file)) {
+            add(corpus, 0, 100);
+        }
+        // Another oracle tag in the header
+        try (RandomAccessFile raf = new RandomAccessFile(file.toFile(), "rw")) {
+            raf.seek(8);
+            raf.writeLong(~OracleCorpus.oracleTag());
+        }
+
+        try (OracleCorpus corpus = new OracleCorpus(file)) {
+            assertTrue(corpus.discarded);
+            assertEquals(0, corpus.size());
+            OracleCorpus.Answer answer = new OracleCorpus.Answer();
+            assertFalse(corpus.lookup(expression(1), answer));
+            corpus.add(expression(1), 42, null);
+            assertTrue(corpus.lookup(expression(1), answer));
+            assertEquals(42, answer.value, 0);
+            assertNull(answer.error);
+        }
+    }
+}
@@ -0,0 +1,176 @@
+package calculatorpaneltest;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+// RpnOptimizer must not change any result: every program is evaluated as infixToRPN() produced it
+// and as optimized, and the two must agree on the value (bit for bit, -0 and NaN included), or on
+// the error and the position of the token that caused it.
+public class RpnOptimizerTest {
+
+    private static final String[] VARIABLES = {"x", "y"};
+
+    // Values the variables are bound to: signed zeros, NaN, infinities and the optimizer's constants
+    private static final double[] VALUES = {0.0, -0.0, 1.0, -1.0, 2.5, -3.0, Double.NaN,
+            Double.POSITIVE_INFINITY, Double.NEGATIVE_INFINITY, 1e308, -1e-308, Double.MIN_VALUE};
+
+    // Unoptimized postfix program of expr, or null if its brackets do not match
+    private static TokenBuffer program(String expr)
+    {
+        TokenBuffer tokens = new TokenBuffer();
+        ExpressionTokenizer.tokenize(expr, tokens, VARIABLES);
+        TokenBuffer program = new TokenBuffer();
+        if (CalculatorPanelEval.infixToRPN(tokens, program, new IntStack()) >= 0) return null;
+        return program.copy();
+    }
+
+    private static void assertSameResult(String expr, EvalResult expected, EvalResult actual)
+    {
+        String message = expr + ": " + expected + " / " + actual;
+        assertEquals(message, expected.error(), actual.error());
+        assertEquals(message, expected.position(), actual.position());
+        if (!expected.isError())
+            assertEquals(message, Double.doubleToLongBits(expected.value()), Double.doubleToLongBits(actual.value()));
+    }
+
+    // Compare the optimized and unoptimized programs of expr for every pair of variable values
+    private static void assertOptimizedSame(String expr)
+    {
+        TokenBuffer program = program(expr);
+        if (program == null || CompiledExpression.maxStackDepth(program) < 0) return;
+        TokenBuffer optimized = RpnOptimizer.optimize(program);
+
+        EvalResult expected = new EvalResult(), actual = new EvalResult();
+        DoubleStack stack = new DoubleStack();
+        double[] bindings = new double[VARIABLES.length];
+        for (double x : VALUES) {
+            for (double y : VALUES) {
+                bindings[0] = x;
+                bindings[1] = y;
+                CalculatorPanelEval.evalRPN(program, bindings, stack, expected);
+                CalculatorPanelEval.evalRPN(optimized, bindings, stack, actual);
+                assertSameResult(expr + " [x = " + x + ", y = " + y + "]", expected, actual);
+            }
+        }
+    }
+
+    private static int count(TokenBuffer program, int code)
+    {
+        int count = 0;
+        for (int pc = 0; pc < program.size; pc++)
+            if (program.code[pc] == code) count++;
+        return count;
+    }
+
+    @Test
+    public void foldsConstants()
+    {
+        TokenBuffer optimized = RpnOptimizer.optimize(program("( 0 - 1 ) * 5 + sin ( 2 )"));
+        assertEquals(1, optimized.size);
+        assertEquals(CalculatorPanelEval.NUMBER, optimized.code[0]);
+        assertEquals(-5 + Math.sin(2), optimized.value[0], 0.0);
+        assertOptimizedSame("( 0 - 1 ) * 5 + sin ( 2 )");
+    }
+
+    @Test
+    public void multiplyingByMinusOneBecomesNeg()
+    {
+        for (String expr : new String[] {"x * ( 0 - 1 )", "( 0 - 1 ) * x", "x / ( 0 - 1 )"}) {
+            TokenBuffer optimized = RpnOptimizer.optimize(program(expr));
+            assertEquals(expr, 2, optimized.size);
+            assertEquals(expr, CalculatorPanelEval.VARIABLE, optimized.code[0]);
+            assertEquals(expr, CalculatorPanelEval.NEG, optimized.code[1]);
+            assertOptimizedSame(expr);
+        }
+        // Two negations cancel out
+        TokenBuffer optimized = RpnOptimizer.optimize(program("( 0 - 1 ) * ( x * ( 0 - 1 ) )"));
+        assertEquals(1, optimized.size);
+        assertOptimizedSame("( 0 - 1 ) * ( x * ( 0 - 1 ) )");
+    }
+
+    @Test
+    public void signedZeros()
+    {
+        // x - 0 is x, but x - -0 is not when x is -0, and x + 0 is not either
+        assertEquals(1, RpnOptimizer.optimize(program("x - 0")).size);
+        assertEquals(3, RpnOptimizer.optimize(program("x - -0")).size);
+        assertEquals(3, RpnOptimizer.optimize(program("x + 0")).size);
+        for (String expr : new String[] {"x - 0", "x - -0", "x + 0", "x + -0", "x * 0", "0 * x",
+                "x * ( 0 - 1 )", "( 0 - 0 ) * ( 0 - 1 )", "-0 / ( 0 - 1 )", "x ^ 1", "x / 1", "1 * x"})
+            assertOptimizedSame(expr);
+    }
+
+    @Test
+    public void nanOperands()
+    {
+        for (String expr : new String[] {"NaN * 1", "1 * NaN", "NaN - 0", "NaN * ( 0 - 1 )", "x * NaN",
+                "ln ( NaN )", "cot ( NaN )", "x ^ 0", "NaN ^ 0", "x ^ 1 * y"})
+            assertOptimizedSame(expr);
+    }
+
+    @Test
+    public void failingOperationsAreNotFolded()
+    {
+        String[] failing = {"1 / 0", "1 / -0", "5 / ( 1 - 1 )", "ln ( 0 )", "ln ( 0 - 2 )", "log ( -0 )",
+                "cot ( 0 )", "cot ( 1 - 1 )", "x + 1 / 0", "cot ( 0 ) * 0"};
+        for (String expr : failing) {
+            TokenBuffer program = program(expr);
+            TokenBuffer optimized = RpnOptimizer.optimize(program);
+            EvalResult expected = new EvalResult(), actual = new EvalResult();
+            CalculatorPanelEval.evalRPN(program, new double[VARIABLES.length], new DoubleStack(), expected);
+            CalculatorPanelEval.evalRPN(optimized, new double[VARIABLES.length], new DoubleStack(), actual);
+            assertTrue(expr, expected.isError());
+            assertSameResult(expr, expected, actual);
+            assertTrue(expr, count(optimized, CalculatorPanelEval.DIV) + count(optimized, CalculatorPanelEval.LN)
+                    + count(optimized, CalculatorPanelEval.LOG) + count(optimized, CalculatorPanelEval.COT) > 0);
+        }
+    }
+
+    @Test
+    public void compiledExpressionsMatchUnoptimizedPrograms()
+    {
+        EvalResult expected = new EvalResult(), actual = new EvalResult();
+        for (String expr : new String[] {"x * ( 0 - 1 ) + y", "ln ( x ) / ( y - 0 )", "cot ( x * 1 )"}) {
+            TokenBuffer program = program(expr);
+            CompiledExpression compiled = CalculatorPanelEval.compile(expr, VARIABLES);
+            for (double x : VALUES) {
+                for (double y : VALUES) {
+                    double[] bindings = {x, y};
+                    CalculatorPanelEval.evalRPN(program, bindings, new DoubleStack(), expected);
+                    compiled.tryEvaluate(bindings, actual);
+                    assertSameResult(expr, expected, actual);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void generatedCases()
+    {
+        ExpressionGenerator generator = new ExpressionGenerator();
+        CaseRandom random = new CaseRandom(0, 0);
+        for (long i = 0; i < 5_000; i++) {
+            random.reset(0, i);
+            generator.generateExpression(random);
+            String expr = generator.formatted.toString();
+            assertOptimizedSame(expr);
+
+            // Replace the first and last numbers with variables, so that only part of the case folds
+            TokenBuffer tokens = new TokenBuffer();
+            ExpressionTokenizer.tokenize(expr, tokens);
+            int first = -1, last = -1;
+            for (int t = 0; t < tokens.size; t++) {
+                if (tokens.code[t] != CalculatorPanelEval.NUMBER) continue;
+                if (first < 0) first = t;
+                last = t;
+            }
+            if (first < 0) continue;
+            StringBuilder withVariables = new StringBuilder();
+            for (int t = 0; t < tokens.size; t++)
+                withVariables.append(t == first ? "x" : t == last ? "y" : tokens.text(t)).append(' ');
+            assertOptimizedSame(withVariables.toString());
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package calculatorpaneltest;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+// The cases of a run sharded over worker JVMs must add up to what a single TestWorker gives in this
+// JVM, even when a worker JVM is killed in the middle of a shard: its shard is run again by another
+// worker, and none of its cases is lost or counted twice.
+public class ShardCoordinatorTest {
+
+    private static final long SEED = 11;
+    private static final long CASES = 100_000;
+
+    @Test
+    public void killedWorkersShardIsRunAgain() throws Exception
+    {
+        RunOptions options = RunOptions.parse(new String[] {"--workers", "2", "--seed", Long.toString(SEED),
+                "--cases", Long.toString(CASES), "--shard-size", "2500"});
+        RunControl control = new RunControl(CASES, 0, 0);
+        ShardCoordinator coordinator = new ShardCoordinator(options, CASES, control);
+
+        long[][] stats = new long[1][];
+        List<Long> mismatches = new ArrayList<>();
+        Throwable[] failure = new Throwable[1];
+        Thread run = new Thread(() -> {
+            try {
+                stats[0] = coordinator.run(mismatches);
+            } catch (Throwable e) {
+                failure[0] = e;
+            }
+        }, "shard-coordinator");
+
+        // Keep the coordinator's report of the failed worker
+        PrintStream console = System.out;
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        System.setOut(new PrintStream(output, true, StandardCharsets.UTF_8));
+        try {
+            run.start();
+
+            // Once shards are coming back, kill a worker JVM (as a crash would) while it runs its next one
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(60);
+            while (control.completed() == 0 && run.isAlive() && System.nanoTime() < deadline)
+                Thread.sleep(5);
+            Optional<ProcessHandle> worker = ProcessHandle.current().children().findFirst();
+            assertTrue("no worker JVM to kill", worker.isPresent());
+            worker.get().destroyForcibly();
+
+            run.join(TimeUnit.SECONDS.toMillis(120));
+        } finally {
+            System.setOut(console);
+        }
+        String report = output.toString(StandardCharsets.UTF_8);
+        console.print(report);
+        assertFalse("the coordinator did not finish", run.isAlive());
+        if (failure[0] != null) throw new AssertionError(failure[0]);
+        assertTrue(report, report.contains("requeued"));
+
+        // The same cases in this JVM
+        TestWorker single = new TestWorker(SEED, CaseLog.NONE, null);
+        for (long i = 0; i < CASES; i++)
+            single.runCase(i);
+
+        assertEquals(CASES, control.completed());
+        assertArrayEquals(single.stats, stats[0]);
+        assertEquals(TestWorker.MAX_MISMATCHES_KEPT, single.mismatches.size());
+        assertEquals(single.mismatches, mismatches.subList(0, TestWorker.MAX_MISMATCHES_KEPT));
+    }
+}
@@ -0,0 +1,95 @@
+package calculatorpaneltest;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.FilterReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.Test;
+
+// StreamingEvaluator must give what tryEvaluate() gives on the whole expression: the same value (bit
+// for bit), or the same error at the same token position, however the input is split into reads.
+public class StreamingEvaluatorTest {
+
+    private final CalculatorPanelEval calcEval = new CalculatorPanelEval();
+    private final StreamingEvaluator streaming = new StreamingEvaluator();
+
+    // A reader returning one character per read, so that every token spans reads
+    private static Reader oneCharAtATime(String expr)
+    {
+        return new FilterReader(new StringReader(expr)) {
+            @Override
+            public int read(char[] buffer, int offset, int length) throws IOException
+            {
+                return super.read(buffer, offset, Math.min(length, 1));
+            }
+        };
+    }
+
+    private void assertSameAsTryEvaluate(String expr, Reader in) throws IOException
+    {
+        EvalResult expected = new EvalResult(), actual = new EvalResult();
+        boolean evaluated = calcEval.tryEvaluate(expr, expected);
+        String shown = expr.length() <= 200 ? expr : expr.substring(0, 200) + "...";
+        assertEquals(shown, evaluated, streaming.evaluate(in, actual));
+        String message = "\"" + shown + "\": " + expected + " / " + actual;
+        assertEquals(message, expected.error(), actual.error());
+        assertEquals(message, expected.position(), actual.position());
+        if (!expected.isError())
+            assertEquals(message, Double.doubleToLongBits(expected.value()), Double.doubleToLongBits(actual.value()));
+    }
+
+    private void assertSameAsTryEvaluate(String expr) throws IOException
+    {
+        assertSameAsTryEvaluate(expr, new StringReader(expr));
+        assertSameAsTryEvaluate(expr, oneCharAtATime(expr));
+    }
+
+    @Test
+    public void handWrittenExpressions() throws IOException
+    {
+        for (String expr : new String[] {"1 + 2 * 3 - 4 / 5", "2 ^ 3 ^ 2", "( 1 + 2 ) * 3", "{ 1 + ( 2 - 3 ) } * 4",
+                "sin ( cos ( 1 ) ) * cot ( 2 ) + ln ( 3 ) - log ( 4 ) / tan ( 5 )", "sin cos ln 2 + 3",
+                "1 / 0 + 2", "1 / 0 + ( 2", "1 / 0 ) + 2", "ln ( 0 - 1 ) * 2", "cot ( 0 ) ^ 2", "1 2 +", "+ 1",
+                "1 +", "( 1 + 2", "1 + 2 )", "( 1 } + 2", "x + 1", "1e308 * 10", "", "  ", "\t1\n+\r2  ",
+                "2 ^ 0.5 ^ 3 * 4 ^ ( 1 - 2 ) ^ 2"})
+            assertSameAsTryEvaluate(expr);
+    }
+
+    @Test
+    public void generatedCases() throws IOException
+    {
+        ExpressionGenerator generator = new ExpressionGenerator();
+        CaseRandom random = new CaseRandom(0, 0);
+        for (long i = 0; i < 5_000; i++) {
+            random.reset(0, i);
+            generator.generateExpression(random);
+            assertSameAsTryEvaluate(generator.formatted.toString());
+        }
+    }
+
+    @Test
+    public void giantExpression() throws IOException
+    {
+        StringWriter out = new StringWriter();
+        long written = new GiantExpressionWriter(3, GiantExpressionWriter.DEFAULT_MAX_DEPTH).write(out, 200_000);
+        String expr = out.toString();
+
+        assertSameAsTryEvaluate(expr, Channels.newReader(
+                Channels.newChannel(new ByteArrayInputStream(expr.getBytes(StandardCharsets.UTF_8))),
+                StandardCharsets.UTF_8));
+        assertEquals(written, streaming.tokens());
+        // Bounded by the nesting depth, not by the length
+        assertTrue(String.valueOf(streaming.maxDepth()), streaming.maxDepth() < 10 * GiantExpressionWriter.DEFAULT_MAX_DEPTH);
+
+        // With a mismatched bracket at the very end
+        assertSameAsTryEvaluate(expr + " )");
+    }
+}
@@ -0,0 +1,65 @@
+package calculatorpaneltest;
+
+// Oracle evaluator: https://github.com/fathzer/javaluator
+import com.fathzer.soft.javaluator.*;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+// Reading the calculator's tokens must not change any of the oracle's answers: TokenizedOracle has
+// to agree with a plain DoubleEvaluator on the whole string, signed literals included.
+public class TokenizedOracleTest {
+
+    private final TokenizedOracle oracle = new TokenizedOracle();
+    private final DoubleEvaluator plain = new DoubleEvaluator();
+
+    // The oracle's value bits, or the message of its exception
+    private static String answer(DoubleEvaluator evaluator, String expr, TokenBuffer tokens)
+    {
+        try {
+            double value = tokens == null ? evaluator.evaluate(expr) : ((TokenizedOracle) evaluator).evaluate(tokens);
+            return Long.toHexString(Double.doubleToLongBits(value));
+        } catch (IllegalArgumentException e) {
+            return e.getMessage();
+        }
+    }
+
+    private void assertSameAsPlain(String expr)
+    {
+        TokenBuffer tokens = new TokenBuffer();
+        ExpressionTokenizer.tokenize(expr, tokens);
+        assertEquals(expr, answer(plain, expr, null), answer(oracle, expr, tokens));
+    }
+
+    @Test
+    public void signedLiteralsKeepTheirUnaryMinus()
+    {
+        TokenBuffer tokens = new TokenBuffer();
+        ExpressionTokenizer.tokenize("-3 ^ 2", tokens);
+        assertEquals(-9.0, oracle.evaluate(tokens), 0.0);
+        for (String expr : new String[] {"-3 ^ 2", "2 * -3", "1 + -2 ^ 2", "( 1 + 2 ) * -0", "-0.5 ^ 0.5",
+                "+3 * 2", "2.5E-3 * 1000", "1e3 + 1", "-Infinity + 1", "NaN", "1-2", "x - 1"})
+            assertSameAsPlain(expr);
+    }
+
+    @Test
+    public void operatorsBracketsAndFunctions()
+    {
+        for (String expr : new String[] {"1 + 2 * 3 - 4 / 5", "2 ^ 3 ^ 2", "( 1 + 2 ) * 3 ) (",
+                "sin ( cos ( 1 ) ) * tan ( 2 ) + ln ( 3 ) - log ( 4 )", "00012 + 3.25 + 1. + .5", "( 1 + 2"})
+            assertSameAsPlain(expr);
+    }
+
+    @Test
+    public void generatedCases()
+    {
+        ExpressionGenerator generator = new ExpressionGenerator();
+        CaseRandom random = new CaseRandom(0, 0);
+        for (long i = 0; i < 5_000; i++) {
+            random.reset(0, i);
+            generator.generateExpression(random);
+            assertSameAsPlain(generator.formatted.toString());
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package calculatorpaneltest;
+
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.VectorShape;
+import jdk.incubator.vector.VectorSpecies;
+
+// BatchKernel using the incubating Vector API for + - * /.
+//
+// Optional: it is only loaded (by reflection, see BatchKernel.load()) when the jdk.incubator.vector
+// module is present. It lives in its own source root (src/vector/java), only compiled by the build's
+// "vector" profile, so that the default build needs no incubator module. Build and run with:
+//     mvn -P vector package
+//     java --add-modules jdk.incubator.vector ...
+// Transcendental functions and '^' are inherited from BatchKernel (java.lang.Math), so results stay
+// bit-for-bit identical to the scalar evaluator. So are the error checks: their scalar loops are
+// auto-vectorized, while VectorMask round trips through boolean[] measured slower.
+final class VectorBatchKernel extends BatchKernel {
+
+    // At most 256 bits: on JDK 17, 512-bit double vectors measured several times slower than the
+    // scalar loops, while 256-bit ones run the arithmetic about 4x faster
+    private static final VectorSpecies<Double> SPECIES = VectorSpecies.of(double.class,
+            VectorShape.forBitSize(Math.min(256, DoubleVector.SPECIES_PREFERRED.vectorBitSize())));
+
+    @Override
+    String name()
+    {
+        return "vector (" + SPECIES.length() + " lanes)";
+    }
+
+    // Each operator gets its own loop with a constant operator (add(), sub(), ...): the Vector API is
+    // only compiled to SIMD instructions when the JIT sees which operator is applied
+    @Override
+    void binary(int op, double[] a, int aOff, double[] b, int bOff, double[] dst, int n)
+    {
+        int i = 0;
+        int bound = SPECIES.loopBound(n), step = SPECIES.length();
+        switch (op) {
+            case CalculatorPanelEval.ADD -> {
+                for (; i < bound; i += step) load(a, aOff + i).add(load(b, bOff + i)).intoArray(dst, i);
+            }
+            case CalculatorPanelEval.SUB -> {
+                for (; i < bound; i += step) load(a, aOff + i).sub(load(b, bOff + i)).intoArray(dst, i);
+            }
+            case CalculatorPanelEval.MUL -> {
+                for (; i < bound; i += step) load(a, aOff + i).mul(load(b, bOff + i)).intoArray(dst, i);
+            }
+            case CalculatorPanelEval.DIV -> {
+                for (; i < bound; i += step) load(a, aOff + i).div(load(b, bOff + i)).intoArray(dst, i);
+            }
+            default -> {
+                super.binary(op, a, aOff, b, bOff, dst, n);
+                return;
+            }
+        }
+        for (; i < n; i++) dst[i] = arithmetic(op, a[aOff + i], b[bOff + i]);
+    }
+
+    @Override
+    void binary(int op, double[] a, int aOff, double b, double[] dst, int n)
+    {
+        int i = 0;
+        int bound = SPECIES.loopBound(n), step = SPECIES.length();
+        switch (op) {
+            case CalculatorPanelEval.ADD -> {
+                for (; i < bound; i += step) load(a, aOff + i).add(b).intoArray(dst, i);
+            }
+            case CalculatorPanelEval.SUB -> {
+                for (; i < bound; i += step) load(a, aOff + i).sub(b).intoArray(dst, i);
+            }
+            case CalculatorPanelEval.MUL -> {
+                for (; i < bound; i += step) load(a, aOff + i).mul(b).intoArray(dst, i);
+            }
+            case CalculatorPanelEval.DIV -> {
+                for (; i < bound; i += step) load(a, aOff + i).div(b).intoArray(dst, i);
+            }
+            default -> {
+                super.binary(op, a, aOff, b, dst, n);
+                return;
+            }
+        }
+        for (; i < n; i++) dst[i] = arithmetic(op, a[aOff + i], b);
+    }
+
+    private static DoubleVector load(double[] a, int offset)
+    {
+        return DoubleVector.fromArray(SPECIES, a, offset);
+    }
+
+    // Scalar + - * / for the elements after the last full vector
+    private static double arithmetic(int op, double x, double y)
+    {
+        return switch (op) {
+            case CalculatorPanelEval.ADD -> x + y;
+            case CalculatorPanelEval.SUB -> x - y;
+            case CalculatorPanelEval.MUL -> x * y;
+            default -> x / y;
+        };
+    }
+}
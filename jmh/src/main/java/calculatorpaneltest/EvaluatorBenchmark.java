@@ -0,0 +1,198 @@
+package calculatorpaneltest;
+
+// Oracle evaluator: https://github.com/fathzer/javaluator
+import com.fathzer.soft.javaluator.*;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+// JMH benchmarks timing each stage of the test client separately, over corpora of generated
+// expressions grouped by length, so that a regression can be traced to the stage that caused it.
+// Run with the gc profiler (-prof gc) to also get the allocation rate and bytes allocated per op.
+//
+// Benchmarks:
+//   tokenize            ExpressionTokenizer.tokenize() into a reused buffer
+//   infixToRPN          shunting-yard stage, on pre-tokenized expressions
+//   evalRPN             RPN stage, on pre-compiled postfix programs
+//   evaluate            CalculatorPanelEval.evaluate(), errors reported with exceptions
+//   tryEvaluate         CalculatorPanelEval.tryEvaluate(), errors reported in an EvalResult
+//   cachedTryEvaluate   tryEvaluate() through an EvaluationCache holding the whole corpus
+//   doubleEvaluator     the Javaluator oracle's DoubleEvaluator.evaluate()
+// Buckets (the bucket parameter):
+//   short, medium, long  generated test cases of < 16, 16-31 and >= 32 tokens
+//   100, 1000            generated test cases joined with '+' up to about that many tokens
+//
+// Each invocation goes through the whole corpus, and the scores are per expression.
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EvaluatorBenchmark {
+
+    // Expressions per bucket
+    static final int CORPUS_SIZE = 512;
+    static final long CORPUS_SEED = 0x5eedL;
+
+    @Param({"short", "medium", "long", "100", "1000"})
+    public String bucket;
+
+    // The bucket's expressions, with their tokens and postfix programs precomputed
+    private final String[] expressions = new String[CORPUS_SIZE];
+    private final TokenBuffer[] infix = new TokenBuffer[CORPUS_SIZE];
+    private final TokenBuffer[] programs = new TokenBuffer[CORPUS_SIZE];
+
+    // Reused by the benchmarks, as the test client reuses them between cases
+    private final TokenBuffer tokens = new TokenBuffer();
+    private final TokenBuffer postfix = new TokenBuffer();
+    private final IntStack operatorStack = new IntStack();
+    private final DoubleStack operandStack = new DoubleStack();
+    private final EvalResult result = new EvalResult();
+    private final CalculatorPanelEval calcEval = new CalculatorPanelEval();
+    private final CalculatorPanelEval cachedCalcEval = new CalculatorPanelEval(new EvaluationCache(64L << 20));
+    private final DoubleEvaluator oracle = new DoubleEvaluator();
+    private final ExpressionGenerator generator = new ExpressionGenerator();
+    private final CaseRandom random = new CaseRandom(CORPUS_SEED, 0);
+
+    // BUILD THE CORPUS OF THE BUCKET FROM GENERATED TEST CASES
+    @Setup(Level.Trial)
+    public void createCorpus()
+    {
+        long index = 0;
+        for (int n = 0; n < CORPUS_SIZE; n++) {
+            String expr;
+            switch (bucket) {
+                case "short", "medium", "long" -> {
+                    int min = bucket.equals("short") ? 0 : bucket.equals("medium") ? 16 : 32;
+                    int max = bucket.equals("short") ? 16 : bucket.equals("medium") ? 32 : Integer.MAX_VALUE;
+                    do {
+                        expr = generateCase(index++);
+                    } while (tokenCount(expr) < min || tokenCount(expr) >= max);
+                }
+                case "100", "1000" -> {
+                    // Join cases the calculator evaluates successfully, so that evalRPN runs to the end
+                    int target = Integer.parseInt(bucket);
+                    StringBuilder sb = new StringBuilder();
+                    while (tokenCount(sb) < target) {
+                        String part = generateCase(index++);
+                        if (!calcEval.tryEvaluate(part, result)) continue;
+                        if (sb.length() > 0) sb.append(" + ");
+                        sb.append("( ").append(part).append(" )");
+                    }
+                    expr = sb.toString();
+                }
+                default -> throw new IllegalArgumentException("Unknown bucket: " + bucket);
+            }
+
+            expressions[n] = expr;
+            ExpressionTokenizer.tokenize(expr, tokens);
+            infix[n] = tokens.copy();
+            CalculatorPanelEval.infixToRPN(tokens, postfix, operatorStack);
+            programs[n] = postfix.copy();
+            cachedCalcEval.tryEvaluate(expr, result);
+        }
+    }
+
+    // Test case index, formatted for both evaluators as TestWorker.runCase() does
+    private String generateCase(long index)
+    {
+        random.reset(CORPUS_SEED, index);
+        generator.generateExpression(random);
+        return generator.formatted.toString();
+    }
+
+    private int tokenCount(CharSequence expr)
+    {
+        ExpressionTokenizer.tokenize(expr, tokens);
+        return tokens.size;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(CORPUS_SIZE)
+    public void tokenize(Blackhole bh)
+    {
+        for (String expr : expressions) {
+            ExpressionTokenizer.tokenize(expr, tokens);
+            bh.consume(tokens.size);
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(CORPUS_SIZE)
+    public void infixToRPN(Blackhole bh)
+    {
+        for (TokenBuffer expr : infix)
+            bh.consume(CalculatorPanelEval.infixToRPN(expr, postfix, operatorStack));
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(CORPUS_SIZE)
+    public void evalRPN(Blackhole bh)
+    {
+        for (TokenBuffer program : programs) {
+            CalculatorPanelEval.evalRPN(program, operandStack, result);
+            bh.consume(result.value());
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(CORPUS_SIZE)
+    public void evaluate(Blackhole bh)
+    {
+        for (String expr : expressions) {
+            try {
+                bh.consume(calcEval.evaluate(expr));
+            } catch (NumberFormatException e) {
+                bh.consume(e);
+            }
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(CORPUS_SIZE)
+    public void tryEvaluate(Blackhole bh)
+    {
+        for (String expr : expressions) {
+            calcEval.tryEvaluate(expr, result);
+            bh.consume(result.value());
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(CORPUS_SIZE)
+    public void cachedTryEvaluate(Blackhole bh)
+    {
+        for (String expr : expressions) {
+            cachedCalcEval.tryEvaluate(expr, result);
+            bh.consume(result.value());
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(CORPUS_SIZE)
+    public void doubleEvaluator(Blackhole bh)
+    {
+        for (String expr : expressions) {
+            try {
+                bh.consume(oracle.evaluate(expr));
+            } catch (IllegalArgumentException e) {
+                bh.consume(e);
+            }
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package calculatorpaneltest;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+// JMH benchmark of ExpressionGenerator.generateExpression(), as the test client calls it for each
+// case: the case random is reset from the master seed and the next index, so every run generates
+// the same sequence of expressions (not bucketed, as the generator picks each case's length).
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GeneratorBenchmark {
+
+    private final ExpressionGenerator generator = new ExpressionGenerator();
+    private final CaseRandom random = new CaseRandom(EvaluatorBenchmark.CORPUS_SEED, 0);
+    private long index;
+
+    @Benchmark
+    public void generateExpression(Blackhole bh)
+    {
+        random.reset(EvaluatorBenchmark.CORPUS_SEED, index++);
+        generator.generateExpression(random);
+        bh.consume(generator.expression);
+        bh.consume(generator.formatted);
+    }
+}